@@ -0,0 +1,103 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+import info.kgeorgiy.java.advanced.concurrent.ListIP;
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * {@link ListIP} operations of {@link IterativeParallelism} on the shared pool, with dynamic scheduling
+ * and over {@link ParallelMapperImpl}, for all combinations of thread count, input size and element cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ListIPBenchmark {
+    @Param({"shared", "dynamic", "mapper"})
+    public String implementation;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"1", "100"})
+    public int cost;
+
+    private ParallelMapper mapper;
+    private ListIP parallelism;
+    private List<Integer> values;
+    private Function<Integer, Integer> f;
+    private Predicate<Integer> even;
+
+    static int work(int value, int cost) {
+        int result = value;
+        for (int i = 0; i < cost; i++) {
+            result = result * 31 + i;
+        }
+        return result;
+    }
+
+    @Setup
+    public void setUp() {
+        values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        int cost = this.cost;
+        f = value -> work(value, cost);
+        even = value -> (work(value, cost) & 1) == 0;
+        parallelism = switch (implementation) {
+            case "shared" -> new IterativeParallelism();
+            case "dynamic" -> IterativeParallelism.withDynamicScheduling(1024);
+            case "mapper" -> new IterativeParallelism(mapper = new ParallelMapperImpl(threads));
+            default -> throw new IllegalArgumentException("Unknown implementation: " + implementation);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mapper != null) {
+            mapper.close();
+            mapper = null;
+        }
+    }
+
+    @Benchmark
+    public Integer maximum() throws InterruptedException {
+        return parallelism.maximum(threads, values, Comparator.comparing(f));
+    }
+
+    @Benchmark
+    public int count() throws InterruptedException {
+        return parallelism.count(threads, values, even);
+    }
+
+    @Benchmark
+    public boolean any() throws InterruptedException {
+        return parallelism.any(threads, values, value -> value == size - 1 && even.test(value));
+    }
+
+    @Benchmark
+    public List<Integer> filter() throws InterruptedException {
+        return parallelism.filter(threads, values, even);
+    }
+
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return parallelism.map(threads, values, f);
+    }
+
+    @Benchmark
+    public String join() throws InterruptedException {
+        return parallelism.join(threads, values);
+    }
+}
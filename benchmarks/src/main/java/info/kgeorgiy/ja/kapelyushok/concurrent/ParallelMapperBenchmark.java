@@ -0,0 +1,61 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * {@link ParallelMapper#map} of {@link ParallelMapperImpl} on platform and virtual threads
+ * and of {@link WorkStealingParallelMapper}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParallelMapperBenchmark {
+    @Param({"simple", "virtual", "stealing"})
+    public String implementation;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1", "100"})
+    public int cost;
+
+    private ParallelMapper mapper;
+    private List<Integer> values;
+    private Function<Integer, Integer> f;
+
+    @Setup
+    public void setUp() {
+        values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        int cost = this.cost;
+        f = value -> ListIPBenchmark.work(value, cost);
+        mapper = switch (implementation) {
+            case "simple" -> new ParallelMapperImpl(threads);
+            case "virtual" -> ParallelMapperImpl.withVirtualThreads(Math.max(1, size / (threads * 4)));
+            case "stealing" -> new WorkStealingParallelMapper(threads);
+            default -> throw new IllegalArgumentException("Unknown implementation: " + implementation);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        mapper.close();
+    }
+
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return mapper.map(f, values);
+    }
+}
@@ -0,0 +1,70 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reductions of {@link PrimitiveParallelism} over {@code int[]}
+ * against the same reductions of {@link IterativeParallelism} over boxed lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PrimitiveParallelismBenchmark {
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"1000000"})
+    public int size;
+
+    private final IterativeParallelism boxed = new IterativeParallelism();
+    private final PrimitiveParallelism primitive = new PrimitiveParallelism();
+    private int[] array;
+    private List<Integer> list;
+    private List<Long> longs;
+
+    @Setup
+    public void setUp() {
+        array = IntStream.range(0, size).map(i -> i * 31 % size).toArray();
+        list = IntStream.of(array).boxed().collect(Collectors.toList());
+        longs = IntStream.of(array).asLongStream().boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public int boxedMaximum() throws InterruptedException {
+        return boxed.maximum(threads, list, Comparator.naturalOrder());
+    }
+
+    @Benchmark
+    public int primitiveMaximum() throws InterruptedException {
+        return primitive.maximum(threads, array);
+    }
+
+    @Benchmark
+    public int boxedCount() throws InterruptedException {
+        return boxed.count(threads, list, value -> (value & 1) == 0);
+    }
+
+    @Benchmark
+    public int primitiveCount() throws InterruptedException {
+        return primitive.count(threads, array, value -> (value & 1) == 0);
+    }
+
+    @Benchmark
+    public long boxedSum() throws InterruptedException {
+        return boxed.reduce(threads, longs, 0L, Long::sum);
+    }
+
+    @Benchmark
+    public long primitiveSum() throws InterruptedException {
+        return primitive.sum(threads, array);
+    }
+}
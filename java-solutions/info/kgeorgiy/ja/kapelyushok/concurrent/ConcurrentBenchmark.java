@@ -0,0 +1,263 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+import info.kgeorgiy.java.advanced.concurrent.ListIP;
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of the concurrent package.
+ * <p>
+ * Usage: {@code ConcurrentBenchmark [mapper|virtual|primitive|skewed|matrix [<size> [<iterations> [csv|json]]]]}.
+ * {@code mapper} compares scalability of {@link ParallelMapperImpl} and {@link WorkStealingParallelMapper}
+ * with growing thread count on cheap and more expensive element functions.
+ * {@code virtual} compares platform and virtual threads of {@link ParallelMapperImpl} and {@link IterativeParallelism}
+ * on blocking and CPU-bound element functions.
+ * {@code primitive} compares {@link IterativeParallelism} over boxed lists with {@link PrimitiveParallelism} over arrays.
+ * {@code skewed} compares static and dynamic scheduling of {@link IterativeParallelism}
+ * when the first eighth of values is a hundred times more expensive than the rest.
+ * {@code matrix} runs every {@link ListIP} operation and {@link ParallelMapper#map} on {@code max(1, size / 100)}
+ * and {@code size} values, all thread counts and two element costs, on {@link IterativeParallelism},
+ * {@link ParallelMapperImpl}, {@code parallelStream()} in the common pool and in a dedicated {@link ForkJoinPool},
+ * and prints results as CSV or JSON, so they can be compared between revisions.
+ * <p>
+ * This is a plain {@code main} with {@value #WARMUP} warm-up runs, so results are indicative only:
+ * there is no fork isolation or dead-code protection.
+ * Regressions are tracked by the JMH benchmarks of the standalone {@code benchmarks} module.
+ */
+class ConcurrentBenchmark {
+    private static final int WARMUP = 5;
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+    private interface Run {
+        void run() throws InterruptedException;
+    }
+
+    private static double measure(int iterations, Run run) throws InterruptedException {
+        for (int i = 0; i < WARMUP; i++) {
+            run.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            run.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / iterations;
+    }
+
+    private static int work(int value, int cost) {
+        int result = value;
+        for (int i = 0; i < cost; i++) {
+            result = result * 31 + i;
+        }
+        return result;
+    }
+
+    private static void benchmarkMapper(int size, int iterations) throws InterruptedException {
+        List<Integer> values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        System.out.printf("%-12s %7s %6s %10s%n", "mapper", "threads", "cost", "ms/op");
+        for (int cost : new int[]{1, 100}) {
+            Function<Integer, Integer> f = value -> work(value, cost);
+            for (int threads : THREADS) {
+                benchmarkMapper("simple", threads, cost, ParallelMapperImpl::new, f, values, iterations);
+                benchmarkMapper("stealing", threads, cost, WorkStealingParallelMapper::new, f, values, iterations);
+            }
+        }
+    }
+
+    private static void benchmarkMapper(String name, int threads, int cost, IntFunction<ParallelMapper> factory,
+                                        Function<Integer, Integer> f, List<Integer> values, int iterations)
+            throws InterruptedException {
+        try (ParallelMapper mapper = factory.apply(threads)) {
+            double time = measure(iterations, () -> mapper.map(f, values));
+            System.out.printf("%-12s %7d %6d %10.3f%n", name, threads, cost, time);
+        }
+    }
+
+    private static Integer block(Integer value) {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private static void benchmarkVirtual(int size, int iterations) throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Integer> values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        System.out.printf("%-20s %-8s %10s%n", "executor", "workload", "ms/op");
+        for (String workload : new String[]{"blocking", "cpu"}) {
+            Function<Integer, Integer> f = workload.equals("cpu") ? value -> work(value, 1000) : ConcurrentBenchmark::block;
+            try (ParallelMapper platform = new ParallelMapperImpl(threads);
+                 ParallelMapper virtual = ParallelMapperImpl.withVirtualThreads(0)) {
+                System.out.printf("%-20s %-8s %10.3f%n", "mapper-platform", workload,
+                        measure(iterations, () -> platform.map(f, values)));
+                System.out.printf("%-20s %-8s %10.3f%n", "mapper-virtual", workload,
+                        measure(iterations, () -> virtual.map(f, values)));
+            }
+            IterativeParallelism platform = new IterativeParallelism();
+            IterativeParallelism virtual = IterativeParallelism.withVirtualThreads();
+            int blocks = workload.equals("cpu") ? threads : size;
+            System.out.printf("%-20s %-8s %10.3f%n", "iterative-platform", workload,
+                    measure(iterations, () -> platform.map(blocks, values, f)));
+            System.out.printf("%-20s %-8s %10.3f%n", "iterative-virtual", workload,
+                    measure(iterations, () -> virtual.map(blocks, values, f)));
+        }
+    }
+
+    private static void benchmarkPrimitive(int size, int iterations) throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int[] array = new Random(0).ints(size).toArray();
+        List<Integer> list = Arrays.stream(array).boxed().collect(Collectors.toList());
+        IterativeParallelism boxed = new IterativeParallelism();
+        PrimitiveParallelism primitive = new PrimitiveParallelism();
+        System.out.printf("%-10s %-10s %10s%n", "operation", "input", "ms/op");
+        System.out.printf("%-10s %-10s %10.3f%n", "maximum", "boxed",
+                measure(iterations, () -> boxed.maximum(threads, list, Integer::compare)));
+        System.out.printf("%-10s %-10s %10.3f%n", "maximum", "primitive",
+                measure(iterations, () -> primitive.maximum(threads, array)));
+        System.out.printf("%-10s %-10s %10.3f%n", "count", "boxed",
+                measure(iterations, () -> boxed.count(threads, list, value -> value % 3 == 0)));
+        System.out.printf("%-10s %-10s %10.3f%n", "count", "primitive",
+                measure(iterations, () -> primitive.count(threads, array, value -> value % 3 == 0)));
+        System.out.printf("%-10s %-10s %10.3f%n", "filter", "boxed",
+                measure(iterations, () -> boxed.filter(threads, list, value -> value % 3 == 0)));
+        System.out.printf("%-10s %-10s %10.3f%n", "filter", "primitive",
+                measure(iterations, () -> primitive.filter(threads, array, value -> value % 3 == 0)));
+        System.out.printf("%-10s %-10s %10.3f%n", "sum", "primitive",
+                measure(iterations, () -> primitive.sum(threads, array)));
+    }
+
+    private static void benchmarkSkewed(int size, int iterations) throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Integer> values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        Predicate<Integer> skewed = value -> work(value, value < size / 8 ? 1000 : 10) % 3 == 0;
+        System.out.printf("%-10s %-8s %10s%n", "scheduling", "input", "ms/op");
+        for (String input : new String[]{"array", "linked"}) {
+            List<Integer> list = input.equals("array") ? values : new LinkedList<>(values);
+            for (String scheduling : new String[]{"static", "dynamic"}) {
+                IterativeParallelism parallelism = scheduling.equals("static")
+                        ? new IterativeParallelism()
+                        : IterativeParallelism.withDynamicScheduling(256);
+                System.out.printf("%-10s %-8s %10.3f%n", scheduling, input,
+                        measure(iterations, () -> parallelism.count(threads, list, skewed)));
+            }
+        }
+    }
+
+    private interface Operation {
+        Object apply(int threads, List<Integer> values, Function<Integer, Integer> f) throws InterruptedException;
+    }
+
+    private record Result(String operation, String engine, int size, int threads, int cost, double time) {
+    }
+
+    private static boolean even(Function<Integer, Integer> f, Integer value) {
+        return f.apply(value) % 2 == 0;
+    }
+
+    private static Map<String, Operation> listOperations(ListIP parallelism) {
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("join", (threads, values, f) -> parallelism.join(threads, values));
+        operations.put("filter", (threads, values, f) -> parallelism.filter(threads, values, value -> even(f, value)));
+        operations.put("map", (threads, values, f) -> parallelism.map(threads, values, f));
+        operations.put("maximum", (threads, values, f) -> parallelism.maximum(threads, values, Comparator.comparing(f)));
+        operations.put("minimum", (threads, values, f) -> parallelism.minimum(threads, values, Comparator.comparing(f)));
+        // Predicates of all and any hold (do not hold) for almost all values, so lists are scanned entirely
+        operations.put("all", (threads, values, f) -> parallelism.all(threads, values, value -> f.apply(value) != 0));
+        operations.put("any", (threads, values, f) -> parallelism.any(threads, values, value -> f.apply(value) == 0));
+        operations.put("count", (threads, values, f) -> parallelism.count(threads, values, value -> even(f, value)));
+        return operations;
+    }
+
+    private static Map<String, Operation> streamOperations(ForkJoinPool pool) {
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("join", (threads, values, f) -> pool.submit(() -> values.parallelStream()
+                .map(Object::toString).collect(Collectors.joining())).join());
+        operations.put("filter", (threads, values, f) -> pool.submit(() -> values.parallelStream()
+                .filter(value -> even(f, value)).toList()).join());
+        operations.put("map", (threads, values, f) -> pool.submit(() -> values.parallelStream()
+                .map(f).toList()).join());
+        operations.put("maximum", (threads, values, f) -> pool.submit(() -> values.parallelStream()
+                .max(Comparator.comparing(f)).orElseThrow()).join());
+        operations.put("minimum", (threads, values, f) -> pool.submit(() -> values.parallelStream()
+                .min(Comparator.comparing(f)).orElseThrow()).join());
+        operations.put("all", (threads, values, f) -> pool.submit(() -> values.parallelStream()
+                .allMatch(value -> f.apply(value) != 0)).join());
+        operations.put("any", (threads, values, f) -> pool.submit(() -> values.parallelStream()
+                .anyMatch(value -> f.apply(value) == 0)).join());
+        operations.put("count", (threads, values, f) -> pool.submit(() -> values.parallelStream()
+                .filter(value -> even(f, value)).count()).join());
+        return operations;
+    }
+
+    private static void benchmarkMatrix(int size, int iterations, String format) throws InterruptedException {
+        List<Result> results = new ArrayList<>();
+        for (int n : new int[]{Math.max(1, size / 100), size}) {
+            List<Integer> values = IntStream.range(0, n).boxed().collect(Collectors.toList());
+            for (int cost : new int[]{1, 100}) {
+                Function<Integer, Integer> f = value -> work(value, cost);
+                for (int threads : THREADS) {
+                    try (ParallelMapper mapper = new ParallelMapperImpl(threads);
+                         ForkJoinPool pool = new ForkJoinPool(threads)) {
+                        Map<String, Map<String, Operation>> engines = new LinkedHashMap<>();
+                        engines.put("iterative", listOperations(new IterativeParallelism()));
+                        engines.put("iterative-dynamic", listOperations(IterativeParallelism.withDynamicScheduling(1024)));
+                        engines.put("iterative-mapper", listOperations(new IterativeParallelism(mapper)));
+                        engines.put("parallel-mapper", Map.of("map", (t, v, g) -> mapper.map(g, v)));
+                        // Parallelism of the common pool does not depend on threads
+                        engines.put("parallel-stream", streamOperations(ForkJoinPool.commonPool()));
+                        engines.put("fork-join", streamOperations(pool));
+                        for (Map.Entry<String, Map<String, Operation>> engine : engines.entrySet()) {
+                            for (Map.Entry<String, Operation> operation : engine.getValue().entrySet()) {
+                                double time = measure(iterations, () -> operation.getValue().apply(threads, values, f));
+                                results.add(new Result(operation.getKey(), engine.getKey(), n, threads, cost, time));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        switch (format) {
+            case "csv" -> {
+                System.out.println("operation,engine,size,threads,cost,ms_per_op");
+                results.forEach(r -> System.out.printf(Locale.ROOT, "%s,%s,%d,%d,%d,%.4f%n",
+                        r.operation(), r.engine(), r.size(), r.threads(), r.cost(), r.time()));
+            }
+            case "json" -> System.out.println(results.stream()
+                    .map(r -> String.format(Locale.ROOT,
+                            "{\"operation\":\"%s\",\"engine\":\"%s\",\"size\":%d,\"threads\":%d,\"cost\":%d,\"msPerOp\":%.4f}",
+                            r.operation(), r.engine(), r.size(), r.threads(), r.cost(), r.time()))
+                    .collect(Collectors.joining(",\n  ", "[\n  ", "\n]")));
+            default -> System.err.println("Unknown format " + format);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "mapper";
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        switch (mode) {
+            case "mapper" -> benchmarkMapper(size, iterations);
+            case "virtual" -> benchmarkVirtual(Math.min(size, 10_000), iterations);
+            case "primitive" -> benchmarkPrimitive(size, iterations);
+            case "skewed" -> benchmarkSkewed(size, iterations);
+            case "matrix" -> benchmarkMatrix(size, iterations, args.length > 3 ? args[3] : "csv");
+            default -> System.err.println("Unknown benchmark " + mode);
+        }
+    }
+}
@@ -4,74 +4,218 @@ import info.kgeorgiy.java.advanced.concurrent.ListIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 /**
  * Class implementing {@link ListIP}.
  */
 public class IterativeParallelism implements ListIP {
     private final ParallelMapper parallelMapper;
+    private final ThreadFactory threadFactory;
+    private final int chunkSize;
+    private final int sequentialThreshold;
+
+    /**
+     * Daemon worker pool of {@link #SIZE} threads shared by instances created without arguments.
+     */
+    private static final class SharedPool {
+        private static final int SIZE = Runtime.getRuntime().availableProcessors();
+        private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+        private static final ParallelMapper MAPPER = new ParallelMapperImpl(
+                SIZE, 1, runnable -> {
+                    Thread thread = new Thread(() -> {
+                        WORKER.set(true);
+                        runnable.run();
+                    });
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
 
     /**
      * Constructor with given {@link ParallelMapper}.
      * @param parallelMapper given {@link ParallelMapper}.
      */
     public IterativeParallelism(ParallelMapper parallelMapper) {
-        this.parallelMapper = parallelMapper;
+        this(parallelMapper, Thread::new, 0, 0);
     }
 
     /**
      * Constructor without arguments.
+     * Blocks are processed by a worker pool shared by all such instances.
+     * Calls requesting more threads than the pool has, and calls made from the pool workers,
+     * run each block on its own thread instead, so requested parallelism is always provided.
      */
     public IterativeParallelism() {
-        parallelMapper = null;
+        this(null, null, 0, 0);
+    }
+
+    /**
+     * Constructor with given {@link ThreadFactory}, used to create a thread for each block.
+     * @param threadFactory given {@link ThreadFactory}.
+     */
+    public IterativeParallelism(ThreadFactory threadFactory) {
+        this(null, threadFactory, 0, 0);
+    }
+
+    private IterativeParallelism(ParallelMapper parallelMapper, ThreadFactory threadFactory, int chunkSize,
+                                 int sequentialThreshold) {
+        this.parallelMapper = parallelMapper;
+        this.threadFactory = threadFactory;
+        this.chunkSize = chunkSize;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Creates an instance running each block on its own virtual thread.
+     * @return new {@link IterativeParallelism} instance.
+     */
+    public static IterativeParallelism withVirtualThreads() {
+        return new IterativeParallelism(Thread.ofVirtual().factory());
+    }
+
+    /**
+     * Creates an instance with dynamic scheduling on the shared worker pool.
+     * Instead of one static block per thread, each of {@code threads} workers repeatedly claims
+     * the next chunk of {@code chunkSize} values, so blocks of expensive values do not delay the result.
+     * @param chunkSize number of values claimed at once.
+     * @return new {@link IterativeParallelism} instance.
+     */
+    public static IterativeParallelism withDynamicScheduling(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive");
+        }
+        return new IterativeParallelism(null, null, chunkSize, 0);
     }
 
+    /**
+     * Creates an instance on the shared worker pool processing inputs shorter than {@code threshold}
+     * by the calling thread. Suits cheap per-element functions, for which scheduling costs more than it saves.
+     * @param threshold minimal number of values processed in parallel.
+     * @return new {@link IterativeParallelism} instance.
+     */
+    public static IterativeParallelism withSequentialThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold should be non-negative");
+        }
+        return new IterativeParallelism(null, null, 0, threshold);
+    }
 
-    private <T> List<Stream<? extends T>> splitOnBlocks(int threads, List<? extends T> values) {
-        List<Stream<? extends T>> blocks = new ArrayList<>();
-        int blockSize = values.size() / threads;
-        int mod = values.size() % threads;
+
+    /**
+     * Function computing result of block {@code [from, to)}.
+     * @param <R> type of result.
+     */
+    interface BlockFunction<R> {
+        R apply(int from, int to);
+    }
+
+    private static List<int[]> splitOnBlocks(int threads, int size) {
+        List<int[]> blocks = new ArrayList<>();
+        int blockSize = size / threads;
+        int mod = size % threads;
         int left = 0;
         int right;
         for (int i = 0; i < threads; i++) {
             int realBlockSize = blockSize + (mod > 0 ? 1 : 0);
             mod--;
             right = left + realBlockSize;
-            blocks.add(values.subList(left, right).stream());
+            blocks.add(new int[]{left, right});
             left = right;
         }
         return blocks;
     }
 
-    // :NOTE: уже есть map, нужно добавить reduce
-    private <T, R> R getResult(int threads, List<? extends T> values, Function<Stream<? extends T>, R> mapper, Function<Stream<R>, R> reducer) throws InterruptedException {
-        threads = Math.min(threads, values.size());
+    /**
+     * Splits indices {@code [0, size)} on at most {@code threads} blocks and applies {@code block} to them in parallel.
+     * @return results of blocks in order.
+     */
+    <R> List<R> mapBlocks(int threads, int size, BlockFunction<? extends R> block) throws InterruptedException {
+        return mapBlocks(threads, size, block, null);
+    }
+
+    /**
+     * Same as {@link #mapBlocks(int, int, BlockFunction)}, but stops blocks whose result is no longer needed.
+     * After every finished block, threads created for blocks starting at {@code from},
+     * such that {@code obsolete.test(from)}, are interrupted.
+     * Block functions are expected to check {@code obsolete} themselves as well; an obsolete block still returns
+     * whatever its function returns when it stops early (e.g. {@code -1} for {@link #indexOf}),
+     * so callers should not rely on results of obsolete blocks.
+     * <p>
+     * With dynamic scheduling blocks are chunks claimed by workers, obsolete chunks are skipped instead
+     * and their results are {@code null}.
+     */
+    <R> List<R> mapBlocks(int threads, int size, BlockFunction<? extends R> block, IntPredicate obsolete)
+            throws InterruptedException {
+        threads = Math.min(threads, size);
         if (threads == 0) {
             throw new IllegalArgumentException("Number of threads can't be 0");
         }
-        List<Stream<? extends T>> blocks = splitOnBlocks(threads, values);
+        if (parallelMapper == null && threadFactory == null && (threads == 1 || size < sequentialThreshold)) {
+            return Collections.singletonList(block.apply(0, size));
+        }
+        if (chunkSize == 0) {
+            return execute(splitOnBlocks(threads, size), block, obsolete);
+        }
+
+        int chunks = (size - 1) / chunkSize + 1;
+        AtomicInteger cursor = new AtomicInteger();
+        Object[] results = new Object[chunks];
+        execute(splitOnBlocks(Math.min(threads, chunks), chunks), (from, to) -> {
+            for (int chunk; (chunk = cursor.getAndIncrement()) < chunks; ) {
+                int start = chunk * chunkSize;
+                if (obsolete == null || !obsolete.test(start)) {
+                    results[chunk] = block.apply(start, Math.min(size, start + chunkSize));
+                }
+            }
+            return null;
+        }, null);
+        @SuppressWarnings("unchecked")
+        List<R> result = (List<R>) Arrays.asList(results);
+        return result;
+    }
 
+    private <R> List<R> execute(List<int[]> blocks, BlockFunction<? extends R> block, IntPredicate obsolete)
+            throws InterruptedException {
+        // Nested calls from pool workers get their own threads, as they could wait for tasks queued behind them
+        if (parallelMapper == null && threadFactory == null
+                && blocks.size() <= SharedPool.SIZE && !SharedPool.WORKER.get()) {
+            return SharedPool.MAPPER.map(range -> block.apply(range[0], range[1]), blocks);
+        }
         if (parallelMapper == null) {
+            ThreadFactory threadFactory = this.threadFactory != null ? this.threadFactory : Thread::new;
+            int threads = blocks.size();
             List<Thread> threadList = new ArrayList<>();
             List<R> result = new ArrayList<>(Collections.nCopies(threads, null));
             IntStream.range(0, threads).forEach( i -> {
-                Thread thread = new Thread(() -> result.set(i, mapper.apply(blocks.get(i))));
-                thread.start();
-                threadList.add(thread);
+                int[] range = blocks.get(i);
+                threadList.add(threadFactory.newThread(() -> {
+                    result.set(i, block.apply(range[0], range[1]));
+                    if (obsolete != null) {
+                        for (int j = 0; j < threadList.size(); j++) {
+                            if (j != i && obsolete.test(blocks.get(j)[0])) {
+                                threadList.get(j).interrupt();
+                            }
+                        }
+                    }
+                }));
             });
+            threadList.forEach(Thread::start);
             InterruptedException interruptedException = null;
             for (Thread thread : threadList) {
                 try {
                     thread.join();
                 } catch (InterruptedException e) {
-                    // :NOTE: можно сказать остальным тредам, чтобы они завершались быстрее -- поинтерраптить
-                    thread.interrupt();
                     if (interruptedException == null) {
+                        threadList.forEach(Thread::interrupt);
                         interruptedException = e;
                     } else {
                         interruptedException.addSuppressed(e);
@@ -81,13 +225,166 @@ public class IterativeParallelism implements ListIP {
             if (interruptedException != null) {
                 throw interruptedException;
             }
-            return reducer.apply(result.stream());
+            return result;
+        }
+        return parallelMapper.map(range -> block.apply(range[0], range[1]), blocks);
+    }
+
+    /**
+     * Returns {@code values} if it is {@link RandomAccess}, or their copy otherwise,
+     * as blocks of other lists, such as {@link LinkedList}, cannot be reached in constant time.
+     */
+    private static <T> List<? extends T> randomAccess(List<? extends T> values) {
+        return values instanceof RandomAccess ? values : new ArrayList<>(values);
+    }
+
+    /**
+     * Returns index of a value satisfying predicate, or {@code -1}, if there is none.
+     * If {@code first} is set, the least such index is returned, otherwise any of them.
+     * As soon as the answer is known, remaining blocks, or the blocks after the found value, are abandoned.
+     */
+    private <T> int search(int threads, List<? extends T> values, Predicate<? super T> predicate, boolean first)
+            throws InterruptedException {
+        if (values.isEmpty()) {
+            return -1;
+        }
+        List<? extends T> list = randomAccess(values);
+        AtomicInteger found = new AtomicInteger(Integer.MAX_VALUE);
+        IntPredicate obsolete = first ? from -> found.get() < from : from -> found.get() != Integer.MAX_VALUE;
+        List<Integer> blocks = mapBlocks(threads, values.size(), (from, to) -> {
+            int index = from;
+            for (T value : list.subList(from, to)) {
+                if (obsolete.test(from)) {
+                    return -1;
+                }
+                if (predicate.test(value)) {
+                    found.accumulateAndGet(index, Math::min);
+                    return index;
+                }
+                index++;
+            }
+            return -1;
+        }, obsolete);
+        for (Integer index : blocks) {
+            if (index != null && index != -1) {
+                return index;
+            }
         }
-        return reducer.apply(parallelMapper.map(mapper, blocks).stream());
+        return -1;
+    }
+
+    /**
+     * Returns index of the first value satisfying predicate.
+     * Blocks stop as soon as a value is found before them.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return index of the first value satisfying predicate, or {@code -1}, if there is none.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T> int indexOf(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        return search(threads, values, predicate, true);
+    }
+
+    /**
+     * Returns the first value satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return the first value satisfying predicate, or empty {@link Optional}, if there is none.
+     * @throws InterruptedException if executing thread was interrupted.
+     * @see #indexOf(int, List, Predicate)
+     */
+    public <T> Optional<T> findFirst(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        int index = indexOf(threads, values, predicate);
+        return index == -1 ? Optional.empty() : Optional.ofNullable(values.get(index));
+    }
+
+    /**
+     * Folds each block into its own mutable container and combines containers of all blocks.
+     * <p>
+     * This is the mutable counterpart of {@link #mapReduce}: operations producing collections or strings
+     * would need a concatenation monoid there, and folding elements one by one with an immutable
+     * concatenation copies each block quadratically, so they accumulate into a container instead.
+     */
+    private <T, A, R> R collect(int threads, List<? extends T> values, IntFunction<A> supplier,
+                                BiConsumer<A, ? super T> accumulator, Function<List<A>, R> finisher)
+            throws InterruptedException {
+        if (values.isEmpty()) {
+            return finisher.apply(List.of());
+        }
+        List<? extends T> list = randomAccess(values);
+        return finisher.apply(mapBlocks(threads, values.size(), (from, to) -> {
+            A container = supplier.apply(to - from);
+            for (T value : list.subList(from, to)) {
+                accumulator.accept(container, value);
+            }
+            return container;
+        }));
+    }
+
+    private static <T> List<T> concat(List<List<T>> blocks) {
+        int size = 0;
+        for (List<T> block : blocks) {
+            size += block.size();
+        }
+        List<T> result = new ArrayList<>(size);
+        for (List<T> block : blocks) {
+            result.addAll(block);
+        }
+        return result;
+    }
+
+    /**
+     * Reduces values using monoid.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to reduce.
+     * @param identity identity of the operator.
+     * @param operator associative reduction operator.
+     * @return values reduced by given operator, or {@code identity}, if no values are given.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T> T reduce(int threads, List<? extends T> values, T identity, BinaryOperator<T> operator) throws InterruptedException {
+        return mapReduce(threads, values, value -> value, new Monoid<>(identity, operator));
+    }
+
+    /**
+     * Maps and reduces values using monoid.
+     * Each block is folded in place, so no intermediate collections are created.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to reduce.
+     * @param lift    mapping function.
+     * @param monoid  reduction monoid.
+     * @return values mapped by given function and reduced by monoid, or its identity, if no values are given.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T, R> R mapReduce(int threads, List<? extends T> values, Function<? super T, ? extends R> lift, Monoid<R> monoid) throws InterruptedException {
+        BinaryOperator<R> operator = monoid.operator();
+        if (values.isEmpty()) {
+            return monoid.identity();
+        }
+        List<? extends T> list = randomAccess(values);
+        List<R> blocks = mapBlocks(threads, values.size(), (from, to) -> {
+            R result = monoid.identity();
+            for (T value : list.subList(from, to)) {
+                result = operator.apply(result, lift.apply(value));
+            }
+            return result;
+        });
+        R result = monoid.identity();
+        for (R block : blocks) {
+            result = operator.apply(result, block);
+        }
+        return result;
     }
 
     /**
      * Join values to string.
+     * Blocks convert values to strings, which are then appended to one builder of the exact total length.
      *
      * @param threads number of concurrent threads.
      * @param values  values to join.
@@ -96,9 +393,20 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public String join(int threads, List<?> values) throws InterruptedException {
-        return getResult(threads, values,
-                s -> s.map(Object::toString).collect(Collectors.joining()),
-                s -> s.map(Object::toString).collect(Collectors.joining()));
+        return this.<Object, List<String>, String>collect(threads, values, ArrayList::new,
+                (strings, value) -> strings.add(String.valueOf(value)), blocks -> {
+                    int length = 0;
+                    for (List<String> block : blocks) {
+                        for (String string : block) {
+                            length += string.length();
+                        }
+                    }
+                    StringBuilder result = new StringBuilder(length);
+                    for (List<String> block : blocks) {
+                        block.forEach(result::append);
+                    }
+                    return result.toString();
+                });
     }
 
     /**
@@ -112,9 +420,11 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return getResult(threads, values,
-                s -> s.filter(predicate).collect(Collectors.toList()),
-                s -> s.flatMap(Collection::stream).collect(Collectors.toList()));
+        return this.<T, List<T>, List<T>>collect(threads, values, size -> new ArrayList<>(), (list, value) -> {
+            if (predicate.test(value)) {
+                list.add(value);
+            }
+        }, IterativeParallelism::concat);
     }
 
     /**
@@ -128,9 +438,8 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f) throws InterruptedException {
-        return getResult(threads, values,
-                s -> s.map(f).collect(Collectors.toList()),
-                s -> s.flatMap(Collection::stream).collect(Collectors.toList()));
+        return this.<T, List<U>, List<U>>collect(threads, values, ArrayList::new,
+                (list, value) -> list.add(f.apply(value)), IterativeParallelism::concat);
     }
 
     /**
@@ -145,9 +454,13 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> T maximum(int threads, List<? extends T> values, Comparator<? super T> comparator) throws InterruptedException {
-        return getResult(threads, values,
-                s -> s.max(comparator).orElseThrow(),
-                s -> s.max(comparator).orElseThrow());
+        if (values.isEmpty()) {
+            throw new NoSuchElementException("No values given");
+        }
+        List<? extends T> list = randomAccess(values);
+        return Collections.max(
+                mapBlocks(threads, list.size(), (from, to) -> Collections.max(list.subList(from, to), comparator)),
+                comparator);
     }
 
     /**
@@ -176,9 +489,7 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> boolean all(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return getResult(threads, values,
-                s -> s.allMatch(predicate),
-                s -> s.allMatch(Boolean::booleanValue));
+        return search(threads, values, predicate.negate(), false) == -1;
     }
 
     /**
@@ -192,7 +503,7 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return !all(threads, values, predicate.negate());
+        return search(threads, values, predicate, false) != -1;
     }
 
     /**
@@ -206,8 +517,22 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> int count(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return getResult(threads, values,
-                s -> (int) s.filter(predicate).count(),
-                s -> s.mapToInt(Integer::intValue).sum());
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<? extends T> list = randomAccess(values);
+        int result = 0;
+        for (int block : this.<Integer>mapBlocks(threads, list.size(), (from, to) -> {
+            int count = 0;
+            for (T value : list.subList(from, to)) {
+                if (predicate.test(value)) {
+                    count++;
+                }
+            }
+            return count;
+        })) {
+            result += block;
+        }
+        return result;
     }
 }
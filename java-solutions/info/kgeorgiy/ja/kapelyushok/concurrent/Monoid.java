@@ -0,0 +1,13 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * Monoid: associative {@code operator} with its {@code identity}.
+ *
+ * @param identity identity element of the operator.
+ * @param operator associative binary operator.
+ * @param <T> type of elements.
+ */
+public record Monoid<T>(T identity, BinaryOperator<T> operator) {
+}
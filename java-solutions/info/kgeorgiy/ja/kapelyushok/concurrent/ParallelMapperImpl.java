@@ -2,10 +2,20 @@ package info.kgeorgiy.ja.kapelyushok.concurrent;
 
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -13,31 +23,33 @@ import java.util.stream.Stream;
  */
 public class ParallelMapperImpl implements ParallelMapper {
 
+    private static final int CHUNKS_PER_THREAD = 4;
     private final Queue<Runnable> tasks = new LinkedList<>();
     private final List<Thread> threadsList;
+    private final int chunkSize;
+    private final ExecutorService virtualExecutor;
+    private final ParallelMapperMetrics metrics;
+    private ObjectName metricsName;
 
-    private static class ResultList<R> {
-        private final List<R> result;
-        private int cnt;
+    private static class Completion {
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
 
-        public ResultList(int n) {
-            result = new ArrayList<>(Collections.nCopies(n, null));
-            cnt = 0;
+        public Completion(int n) {
+            remaining = new AtomicInteger(n);
+            if (n == 0) {
+                future.complete(null);
+            }
         }
 
-        public synchronized void set(int i, R value) {
-            result.set(i, value);
-            cnt++;
-            if (cnt == result.size()) {
-                notify();
+        public void complete(int count) {
+            if (remaining.addAndGet(-count) == 0) {
+                future.complete(null);
             }
         }
 
-        public synchronized List<R> getResult() throws InterruptedException {
-            while (cnt != result.size()) {
-                wait();
-            }
-            return result;
+        public void fail(Throwable e) {
+            future.completeExceptionally(e);
         }
     }
 
@@ -49,6 +61,34 @@ public class ParallelMapperImpl implements ParallelMapper {
      * @param threads count of threads
      */
     public ParallelMapperImpl(int threads) {
+        this(threads, 0);
+    }
+
+    /**
+     * Thread-count and chunk size constructor.
+     * Creates a ParallelMapperImpl instance operating with {@code threads}
+     * threads of type {@link Thread}, each task of which maps {@code chunkSize} consecutive elements.
+     *
+     * @param threads count of threads
+     * @param chunkSize count of elements per task, or {@code 0} to derive it from element and thread counts
+     */
+    public ParallelMapperImpl(int threads, int chunkSize) {
+        this(threads, chunkSize, Thread::new);
+    }
+
+    /**
+     * Thread-count, chunk size and thread factory constructor.
+     * Creates a ParallelMapperImpl instance operating with {@code threads}
+     * threads created by {@code threadFactory}, each task of which maps {@code chunkSize} consecutive elements.
+     *
+     * @param threads count of threads
+     * @param chunkSize count of elements per task, or {@code 0} to derive it from element and thread counts
+     * @param threadFactory factory of worker threads
+     */
+    public ParallelMapperImpl(int threads, int chunkSize, ThreadFactory threadFactory) {
+        this.chunkSize = chunkSize;
+        virtualExecutor = null;
+        metrics = new ParallelMapperMetrics(threads);
         Runnable runnable = () -> {
             try {
                 Runnable task;
@@ -64,33 +104,155 @@ public class ParallelMapperImpl implements ParallelMapper {
             } catch (InterruptedException ignored) {
             }
         };
-        threadsList = Stream.generate(() -> new Thread(runnable)).limit(threads).collect(Collectors.toList());
+        threadsList = Stream.generate(() -> threadFactory.newThread(runnable)).limit(threads).collect(Collectors.toList());
         threadsList.forEach(Thread::start);
     }
 
+    private ParallelMapperImpl(ExecutorService virtualExecutor, int chunkSize) {
+        this.virtualExecutor = virtualExecutor;
+        this.chunkSize = Math.max(chunkSize, 1);
+        threadsList = List.of();
+        metrics = new ParallelMapperMetrics(0);
+    }
+
+    /**
+     * Creates a ParallelMapperImpl instance running each task on its own virtual thread.
+     * Suits blocking mapping functions, as blocked tasks do not occupy platform threads.
+     *
+     * @param chunkSize count of elements per task, or {@code 0} to run each element on its own virtual thread
+     * @return new ParallelMapperImpl instance
+     */
+    public static ParallelMapperImpl withVirtualThreads(int chunkSize) {
+        return new ParallelMapperImpl(Executors.newVirtualThreadPerTaskExecutor(), chunkSize);
+    }
+
+    /**
+     * Returns metrics of this instance. They are always recorded, per task rather than per element.
+     *
+     * @return live view of metrics
+     */
+    public ParallelMapperMetricsMBean getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registers {@link #getMetrics() metrics} in the platform MBean server
+     * as {@code info.kgeorgiy.ja.kapelyushok.concurrent:type=ParallelMapper,name=<name>}.
+     * They are unregistered on {@link #close()}.
+     *
+     * @param name name of this instance
+     * @throws JMException if metrics cannot be registered
+     */
+    public synchronized void registerMetrics(String name) throws JMException {
+        ObjectName objectName = new ObjectName("info.kgeorgiy.ja.kapelyushok.concurrent:type=ParallelMapper,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        metricsName = objectName;
+    }
+
     /**
      * Maps function {@code f} over specified {@code args}.
-     * Mapping for each element performed in parallel.
+     * Mapping is performed in parallel by chunks of consecutive elements.
+     * If {@code f} throws an exception, it is rethrown.
      *
      * @throws InterruptedException if calling thread was interrupted
      */
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        ResultList<R> resultList = new ResultList<>(args.size());
-        IntStream.range(0, args.size()).forEach(i -> {
-            synchronized (tasks) {
-                tasks.add(() -> {
-                    resultList.set(i, f.apply(args.get(i)));
-                });
-                tasks.notify();
+        long start = System.nanoTime();
+        try {
+            return this.<T, R>mapAsync(f, args).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
-        });
-        return resultList.getResult();
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            metrics.waited(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Maps function {@code f} over specified {@code args} without blocking the caller.
+     * Mapping is performed in parallel by chunks of consecutive elements.
+     *
+     * @return future of the list of mapped values, completed exceptionally if {@code f} throws an exception
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args) {
+        List<R> result = new ArrayList<>(Collections.nCopies(args.size(), null));
+        return run(args.size(), i -> result.set(i, f.apply(args.get(i)))).thenApply(ignored -> result);
+    }
+
+    /**
+     * Maps function {@code f} over specified {@code args} without blocking the caller,
+     * passing each mapped value to {@code consumer} as soon as it is ready.
+     * The consumer is called concurrently from worker threads, in no particular order.
+     *
+     * @return future completed after all values are consumed,
+     * or exceptionally if {@code f} or {@code consumer} throws an exception
+     */
+    public <T, R> CompletableFuture<Void> mapUnordered(Function<? super T, ? extends R> f, List<? extends T> args,
+                                                       Consumer<? super R> consumer) {
+        return run(args.size(), i -> consumer.accept(f.apply(args.get(i))));
+    }
+
+    private CompletableFuture<Void> run(int size, IntConsumer action) {
+        Completion completion = new Completion(size);
+        int chunk = chunkSize > 0 ? chunkSize : Math.max(1, size / (threadsList.size() * CHUNKS_PER_THREAD));
+        List<Runnable> chunks = new ArrayList<>();
+        long submitted = System.nanoTime();
+        for (int from = 0; from < size; from += chunk) {
+            int left = from;
+            int right = Math.min(size, from + chunk);
+            chunks.add(() -> {
+                long start = System.nanoTime();
+                metrics.started(start - submitted);
+                try {
+                    for (int i = left; i < right; i++) {
+                        action.accept(i);
+                    }
+                    completion.complete(right - left);
+                } catch (RuntimeException | Error e) {
+                    completion.fail(e);
+                } finally {
+                    metrics.finished(System.nanoTime() - start);
+                }
+            });
+        }
+        metrics.submitted(chunks.size());
+        submit(chunks);
+        return completion.future;
+    }
+
+    private void submit(List<Runnable> chunks) {
+        if (virtualExecutor != null) {
+            chunks.forEach(virtualExecutor::execute);
+            return;
+        }
+        synchronized (tasks) {
+            tasks.addAll(chunks);
+            tasks.notifyAll();
+        }
     }
 
     /** Stops all threads. All unfinished mappings are left in undefined state. */
     @Override
     public void close() {
+        synchronized (this) {
+            if (metricsName != null) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+                } catch (JMException ignored) {
+                }
+                metricsName = null;
+            }
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdownNow();
+        }
         threadsList.forEach(Thread::interrupt);
         // :NOTE: здесь была завязка на Thread::isInterrupted и был бесконечный цикл
         while (threadsList.stream().anyMatch(Thread::isAlive)) {
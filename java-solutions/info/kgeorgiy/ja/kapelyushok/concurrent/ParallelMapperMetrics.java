@@ -0,0 +1,119 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link ParallelMapperImpl} pool.
+ * Recording is lock-free and can be called concurrently from all workers.
+ */
+class ParallelMapperMetrics implements ParallelMapperMetricsMBean {
+    private final int workers;
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder active = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final AtomicLongArray queueWaits = new AtomicLongArray(Long.SIZE);
+    private final AtomicLongArray runTimes = new AtomicLongArray(Long.SIZE);
+    private final AtomicLongArray callerWaits = new AtomicLongArray(Long.SIZE);
+
+    ParallelMapperMetrics(int workers) {
+        this.workers = workers;
+    }
+
+    private static void record(AtomicLongArray histogram, long nanos) {
+        histogram.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+    }
+
+    void submitted(int tasks) {
+        queued.add(tasks);
+    }
+
+    void started(long queueNanos) {
+        queued.decrement();
+        active.increment();
+        record(queueWaits, queueNanos);
+    }
+
+    void finished(long runNanos) {
+        active.decrement();
+        completed.increment();
+        record(runTimes, runNanos);
+    }
+
+    void waited(long nanos) {
+        record(callerWaits, nanos);
+    }
+
+    @Override
+    public int getWorkers() {
+        return workers;
+    }
+
+    @Override
+    public long getQueueLength() {
+        return queued.sum();
+    }
+
+    @Override
+    public long getActiveWorkers() {
+        return active.sum();
+    }
+
+    @Override
+    public long getTasksCompleted() {
+        return completed.sum();
+    }
+
+    private static long[] snapshot(AtomicLongArray histogram) {
+        long[] result = new long[histogram.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = histogram.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public long[] getQueueWaitHistogram() {
+        return snapshot(queueWaits);
+    }
+
+    @Override
+    public long[] getRunTimeHistogram() {
+        return snapshot(runTimes);
+    }
+
+    @Override
+    public long[] getCallerWaitHistogram() {
+        return snapshot(callerWaits);
+    }
+
+    private static double p99Micros(long[] histogram) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen > 0 && seen >= 0.99 * total) {
+                return Math.scalb(1.0, i + 1) / 1e3;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public double getQueueWaitP99Micros() {
+        return p99Micros(getQueueWaitHistogram());
+    }
+
+    @Override
+    public double getRunTimeP99Micros() {
+        return p99Micros(getRunTimeHistogram());
+    }
+
+    @Override
+    public double getCallerWaitP99Micros() {
+        return p99Micros(getCallerWaitHistogram());
+    }
+}
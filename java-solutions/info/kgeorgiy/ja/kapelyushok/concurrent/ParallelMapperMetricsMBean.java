@@ -0,0 +1,54 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+/**
+ * Metrics of a {@link ParallelMapperImpl} pool, also exposed via JMX.
+ * Histograms are logarithmic: element {@code i} counts durations in {@code [2^i, 2^(i+1))} nanoseconds.
+ */
+public interface ParallelMapperMetricsMBean {
+    /**
+     * Returns number of worker threads, or {@code 0} for virtual threads.
+     */
+    int getWorkers();
+
+    /**
+     * Returns number of tasks submitted, but not started yet.
+     */
+    long getQueueLength();
+
+    /**
+     * Returns number of tasks being run.
+     */
+    long getActiveWorkers();
+
+    long getTasksCompleted();
+
+    /**
+     * Returns histogram of times tasks spent in the queue.
+     */
+    long[] getQueueWaitHistogram();
+
+    /**
+     * Returns histogram of task run times.
+     */
+    long[] getRunTimeHistogram();
+
+    /**
+     * Returns histogram of times callers of {@link ParallelMapperImpl#map} waited for results.
+     */
+    long[] getCallerWaitHistogram();
+
+    /**
+     * Returns upper bound of the 99th percentile of queue wait time in microseconds.
+     */
+    double getQueueWaitP99Micros();
+
+    /**
+     * Returns upper bound of the 99th percentile of task run time in microseconds.
+     */
+    double getRunTimeP99Micros();
+
+    /**
+     * Returns upper bound of the 99th percentile of caller wait time in microseconds.
+     */
+    double getCallerWaitP99Micros();
+}
@@ -0,0 +1,312 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * Parallel reductions over {@code int[]}, {@code long[]} and {@code double[]}.
+ * <p>
+ * Blocks are scheduled the same way as by {@link IterativeParallelism}, but each block is processed
+ * by a plain indexed loop, so no element is boxed and no stream is created.
+ * Only one result per block is boxed.
+ * {@code filter} collects values of each block into its own array, which are then copied into the result.
+ */
+public class PrimitiveParallelism {
+    private final IterativeParallelism parallelism;
+
+    /**
+     * Constructor without arguments.
+     * Blocks are processed by the worker pool shared with {@link IterativeParallelism#IterativeParallelism()}.
+     */
+    public PrimitiveParallelism() {
+        parallelism = new IterativeParallelism();
+    }
+
+    /**
+     * Constructor with given {@link ParallelMapper}.
+     * @param parallelMapper given {@link ParallelMapper}.
+     */
+    public PrimitiveParallelism(ParallelMapper parallelMapper) {
+        parallelism = new IterativeParallelism(parallelMapper);
+    }
+
+    /**
+     * Applies {@code block} to blocks of indices {@code [0, size)} and combines block results.
+     * Returns {@code empty} without scheduling anything if {@code size} is zero.
+     */
+    private <A, R> R collect(int threads, int size, R empty, IterativeParallelism.BlockFunction<A> block,
+                             Function<List<A>, R> combine) throws InterruptedException {
+        return size == 0 ? empty : combine.apply(parallelism.mapBlocks(threads, size, block));
+    }
+
+    /**
+     * Folds block results with {@code operator}, starting from its {@code identity}.
+     */
+    private <R> R fold(int threads, int size, R identity, IterativeParallelism.BlockFunction<R> block,
+                       BinaryOperator<R> operator) throws InterruptedException {
+        return collect(threads, size, identity, block, results -> {
+            R result = identity;
+            for (R value : results) {
+                result = operator.apply(result, value);
+            }
+            return result;
+        });
+    }
+
+    private static void checkNotEmpty(int length) {
+        if (length == 0) {
+            throw new NoSuchElementException("Array is empty");
+        }
+    }
+
+    /**
+     * Returns sum of values, computed in {@code long} to avoid overflow.
+     */
+    public long sum(int threads, int[] values) throws InterruptedException {
+        return fold(threads, values.length, 0L, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            return sum;
+        }, Long::sum);
+    }
+
+    /**
+     * Returns sum of values. Overflow wraps around, as for sequential sum.
+     */
+    public long sum(int threads, long[] values) throws InterruptedException {
+        return fold(threads, values.length, 0L, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            return sum;
+        }, Long::sum);
+    }
+
+    /**
+     * Returns sum of values.
+     * Blocks are summed separately, so rounding may differ from sequential sum.
+     */
+    public double sum(int threads, double[] values) throws InterruptedException {
+        return fold(threads, values.length, 0.0, (from, to) -> {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            return sum;
+        }, Double::sum);
+    }
+
+    /**
+     * Returns minimum of values.
+     * @throws NoSuchElementException if values are empty.
+     */
+    public int minimum(int threads, int[] values) throws InterruptedException {
+        checkNotEmpty(values.length);
+        return this.<Integer>fold(threads, values.length, Integer.MAX_VALUE, (from, to) -> {
+            int min = Integer.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, values[i]);
+            }
+            return min;
+        }, Math::min);
+    }
+
+    /**
+     * Returns minimum of values.
+     * @throws NoSuchElementException if values are empty.
+     */
+    public long minimum(int threads, long[] values) throws InterruptedException {
+        checkNotEmpty(values.length);
+        return this.<Long>fold(threads, values.length, Long.MAX_VALUE, (from, to) -> {
+            long min = Long.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, values[i]);
+            }
+            return min;
+        }, Math::min);
+    }
+
+    /**
+     * Returns minimum of values, as {@link Math#min(double, double)} does: {@code NaN} if any value is {@code NaN}.
+     * @throws NoSuchElementException if values are empty.
+     */
+    public double minimum(int threads, double[] values) throws InterruptedException {
+        checkNotEmpty(values.length);
+        return this.<Double>fold(threads, values.length, Double.POSITIVE_INFINITY, (from, to) -> {
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, values[i]);
+            }
+            return min;
+        }, Math::min);
+    }
+
+    /**
+     * Returns maximum of values.
+     * @throws NoSuchElementException if values are empty.
+     */
+    public int maximum(int threads, int[] values) throws InterruptedException {
+        checkNotEmpty(values.length);
+        return this.<Integer>fold(threads, values.length, Integer.MIN_VALUE, (from, to) -> {
+            int max = Integer.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                max = Math.max(max, values[i]);
+            }
+            return max;
+        }, Math::max);
+    }
+
+    /**
+     * Returns maximum of values.
+     * @throws NoSuchElementException if values are empty.
+     */
+    public long maximum(int threads, long[] values) throws InterruptedException {
+        checkNotEmpty(values.length);
+        return this.<Long>fold(threads, values.length, Long.MIN_VALUE, (from, to) -> {
+            long max = Long.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                max = Math.max(max, values[i]);
+            }
+            return max;
+        }, Math::max);
+    }
+
+    /**
+     * Returns maximum of values, as {@link Math#max(double, double)} does: {@code NaN} if any value is {@code NaN}.
+     * @throws NoSuchElementException if values are empty.
+     */
+    public double maximum(int threads, double[] values) throws InterruptedException {
+        checkNotEmpty(values.length);
+        return this.<Double>fold(threads, values.length, Double.NEGATIVE_INFINITY, (from, to) -> {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                max = Math.max(max, values[i]);
+            }
+            return max;
+        }, Math::max);
+    }
+
+    /**
+     * Returns number of values satisfying predicate.
+     */
+    public int count(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return fold(threads, values.length, 0, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }, Integer::sum);
+    }
+
+    /**
+     * Returns number of values satisfying predicate.
+     */
+    public int count(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return fold(threads, values.length, 0, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }, Integer::sum);
+    }
+
+    /**
+     * Returns number of values satisfying predicate.
+     */
+    public int count(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return fold(threads, values.length, 0, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }, Integer::sum);
+    }
+
+    /**
+     * Values of a block satisfying predicate: the first {@code size} elements of the primitive array {@code values}.
+     */
+    private record Filtered(Object values, int size) {
+    }
+
+    private static Object concat(List<Filtered> blocks, Class<?> type) {
+        int length = 0;
+        for (Filtered block : blocks) {
+            length += block.size();
+        }
+        Object result = Array.newInstance(type, length);
+        int position = 0;
+        for (Filtered block : blocks) {
+            System.arraycopy(block.values(), 0, result, position, block.size());
+            position += block.size();
+        }
+        return result;
+    }
+
+    /**
+     * Returns values satisfying predicate, in their original order.
+     */
+    public int[] filter(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return collect(threads, values.length, new int[0], (from, to) -> {
+            int[] filtered = new int[to - from];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    filtered[size++] = values[i];
+                }
+            }
+            return new Filtered(filtered, size);
+        }, blocks -> (int[]) concat(blocks, int.class));
+    }
+
+    /**
+     * Returns values satisfying predicate, in their original order.
+     */
+    public long[] filter(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return collect(threads, values.length, new long[0], (from, to) -> {
+            long[] filtered = new long[to - from];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    filtered[size++] = values[i];
+                }
+            }
+            return new Filtered(filtered, size);
+        }, blocks -> (long[]) concat(blocks, long.class));
+    }
+
+    /**
+     * Returns values satisfying predicate, in their original order.
+     */
+    public double[] filter(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return collect(threads, values.length, new double[0], (from, to) -> {
+            double[] filtered = new double[to - from];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    filtered[size++] = values[i];
+                }
+            }
+            return new Filtered(filtered, size);
+        }, blocks -> (double[]) concat(blocks, double.class));
+    }
+}
@@ -0,0 +1,207 @@
+package info.kgeorgiy.ja.kapelyushok.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Work-stealing implementation of {@link ParallelMapper}.
+ * <p>
+ * {@link #map} submits a single range task to a lock-free queue. Workers split ranges in halves,
+ * keeping one half in their own deque, which they use as a stack, while idle workers steal the oldest
+ * (and therefore the largest) ranges from the other end of other deques.
+ * No lock is taken on the submission and execution paths, idle workers are parked.
+ */
+public class WorkStealingParallelMapper implements ParallelMapper {
+    private static final int RANGES_PER_WORKER = 8;
+    private final Queue<Task> submissions = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> idle = new ConcurrentLinkedQueue<>();
+    private final Worker[] workers;
+    private final List<Thread> threads;
+
+    private interface Task {
+        void run(Worker worker);
+    }
+
+    private static class Job<T, R> {
+        private final Function<? super T, ? extends R> f;
+        private final List<? extends T> args;
+        private final Object[] results;
+        private final int grain;
+        private final AtomicInteger remaining;
+        private final AtomicReference<Throwable> exception = new AtomicReference<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        Job(Function<? super T, ? extends R> f, List<? extends T> args, int workers) {
+            this.f = f;
+            this.args = args;
+            results = new Object[args.size()];
+            grain = Math.max(1, args.size() / (workers * RANGES_PER_WORKER));
+            remaining = new AtomicInteger(args.size());
+        }
+
+        void complete(int count) {
+            if (remaining.addAndGet(-count) == 0) {
+                done.countDown();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        List<R> getResult() throws InterruptedException {
+            done.await();
+            Throwable e = exception.get();
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e instanceof Error error) {
+                throw error;
+            }
+            if (e != null) {
+                throw new IllegalStateException(e);
+            }
+            return (List<R>) Arrays.asList(results);
+        }
+    }
+
+    private static class RangeTask<T, R> implements Task {
+        private final Job<T, R> job;
+        private final int from;
+        private int to;
+
+        RangeTask(Job<T, R> job, int from, int to) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run(Worker worker) {
+            while (to - from > job.grain) {
+                int middle = (from + to) >>> 1;
+                worker.push(new RangeTask<>(job, middle, to));
+                to = middle;
+            }
+            try {
+                for (int i = from; i < to; i++) {
+                    job.results[i] = job.f.apply(job.args.get(i));
+                }
+            } catch (Throwable e) {
+                // Errors are passed to the caller as well, instead of killing the worker
+                job.exception.compareAndSet(null, e);
+            } finally {
+                job.complete(to - from);
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final Deque<Task> deque = new ConcurrentLinkedDeque<>();
+        private final int index;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        void push(Task task) {
+            deque.addLast(task);
+            wakeUp();
+        }
+
+        private Task find() {
+            Task task = deque.pollLast();
+            if (task == null) {
+                task = submissions.poll();
+            }
+            for (int i = 1; task == null && i < workers.length; i++) {
+                task = workers[(index + i) % workers.length].deque.pollFirst();
+            }
+            return task;
+        }
+
+        @Override
+        public void run() {
+            Thread current = Thread.currentThread();
+            while (!current.isInterrupted()) {
+                Task task = find();
+                if (task == null) {
+                    idle.add(current);
+                    task = find();
+                    if (task == null) {
+                        LockSupport.park(this);
+                    }
+                    idle.remove(current);
+                }
+                if (task != null) {
+                    task.run(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Thread-count constructor.
+     * Creates a WorkStealingParallelMapper instance operating with {@code threads} worker threads.
+     *
+     * @param threads count of threads
+     */
+    public WorkStealingParallelMapper(int threads) {
+        workers = new Worker[threads];
+        List<Thread> threadList = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+            threadList.add(new Thread(workers[i]));
+        }
+        this.threads = threadList;
+        threadList.forEach(Thread::start);
+    }
+
+    private void wakeUp() {
+        Thread thread = idle.poll();
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Maps function {@code f} over specified {@code args}.
+     * Mapping is performed in parallel, contiguous ranges of elements are processed by the same worker.
+     * If {@code f} throws an exception or an error, it is rethrown after all elements are processed.
+     *
+     * @throws InterruptedException if calling thread was interrupted
+     */
+    @Override
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
+        if (args.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Job<T, R> job = new Job<>(f, args, workers.length);
+        submissions.add(new RangeTask<>(job, 0, args.size()));
+        wakeUp();
+        return job.getResult();
+    }
+
+    /** Stops all threads. All unfinished mappings are left in undefined state. */
+    @Override
+    public void close() {
+        threads.forEach(Thread::interrupt);
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package info.kgeorgiy.ja.kapelyushok.crawler;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive limit of concurrent downloads from a single host, with a circuit breaker.
+ * <p>
+ * The limit starts at {@code 1} and grows by one per successful download until the first congestion
+ * (slow start), then by one per {@code limit} successful downloads. It is halved on failures and on downloads
+ * more than twice as slow as the baseline, at most once per such download time.
+ * The baseline is the fastest of the last {@link #WINDOW} to {@code 2 * WINDOW} successful downloads,
+ * so a single fast outlier or a permanent change of the host does not fix it forever.
+ * After {@link #FAILURES_TO_OPEN} consecutive failures the circuit opens: downloads fail immediately
+ * for a backoff period, which doubles on every failed probe up to {@link #MAX_BACKOFF}.
+ * The first download after the backoff is a probe, its success closes the circuit.
+ */
+class AdaptiveLimit {
+    static final int FAILURES_TO_OPEN = 5;
+    static final long INITIAL_BACKOFF = TimeUnit.MILLISECONDS.toNanos(100);
+    static final long MAX_BACKOFF = TimeUnit.SECONDS.toNanos(30);
+    static final int WINDOW = 100;
+    private final int max;
+    private double limit = 1;
+    private boolean slowStart = true;
+    private long currentMin = Long.MAX_VALUE;
+    private long previousMin = Long.MAX_VALUE;
+    private int samples;
+    private long lastDecrease;
+    private int failures;
+    private long backoff = INITIAL_BACKOFF;
+    private long openUntil;
+    private boolean open;
+    private boolean probing;
+
+    AdaptiveLimit(int max) {
+        this.max = Math.max(1, max);
+    }
+
+    /**
+     * Returns current number of concurrent downloads allowed.
+     */
+    synchronized int get() {
+        return (int) limit;
+    }
+
+    /**
+     * Checks whether a download may be started.
+     *
+     * @throws IOException if the circuit is open.
+     */
+    synchronized void acquire() throws IOException {
+        if (!open) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (probing || now < openUntil) {
+            throw new IOException("Host is unavailable, circuit is open for "
+                    + TimeUnit.NANOSECONDS.toMillis(Math.max(0, openUntil - now)) + " ms");
+        }
+        probing = true;
+    }
+
+    synchronized void success(long nanos) {
+        failures = 0;
+        if (open) {
+            open = false;
+            probing = false;
+            backoff = INITIAL_BACKOFF;
+        }
+        if (nanos > 2 * baseline(nanos)) {
+            decrease(nanos);
+        } else {
+            limit = Math.min(max, limit + (slowStart ? 1 : 1 / limit));
+        }
+    }
+
+    /**
+     * Records latency of a successful download and returns minimum over the current and previous windows.
+     */
+    private long baseline(long nanos) {
+        if (++samples > WINDOW) {
+            previousMin = currentMin;
+            currentMin = Long.MAX_VALUE;
+            samples = 1;
+        }
+        currentMin = Math.min(currentMin, nanos);
+        return Math.min(currentMin, previousMin);
+    }
+
+    synchronized void failure(long nanos) {
+        decrease(nanos);
+        if (probing) {
+            probing = false;
+            openCircuit();
+        } else if (!open && ++failures >= FAILURES_TO_OPEN) {
+            openCircuit();
+        }
+    }
+
+    private void decrease(long nanos) {
+        long now = System.nanoTime();
+        if (now - lastDecrease > nanos) {
+            slowStart = false;
+            limit = Math.max(1, limit / 2);
+            lastDecrease = now;
+        }
+    }
+
+    private void openCircuit() {
+        open = true;
+        failures = 0;
+        openUntil = System.nanoTime() + backoff;
+        backoff = Math.min(MAX_BACKOFF, backoff * 2);
+    }
+}
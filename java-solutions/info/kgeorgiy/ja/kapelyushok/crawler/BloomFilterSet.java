@@ -0,0 +1,53 @@
+package info.kgeorgiy.ja.kapelyushok.crawler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter front of another {@link VisitedSet}.
+ * A URL not in the filter is new and is only recorded in the backing set,
+ * a URL possibly in the filter is checked against the backing set, so no new URL is skipped.
+ * Bit indices are derived from halves of {@link FingerprintSet#fingerprint} by double hashing.
+ * Concurrent first additions of the same URL may both return {@code true}.
+ */
+class BloomFilterSet implements VisitedSet {
+    private final VisitedSet backing;
+    private final AtomicLongArray bits;
+    private final long size;
+    private final int hashes;
+
+    BloomFilterSet(VisitedSet backing, long expected, double errorRate) {
+        if (expected <= 0 || errorRate <= 0 || errorRate >= 1) {
+            throw new IllegalArgumentException("Expected count should be positive and error rate should be in (0, 1)");
+        }
+        double ln2 = Math.log(2);
+        long words = Math.max(1, (long) Math.ceil(-expected * Math.log(errorRate) / (ln2 * ln2) / Long.SIZE));
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter is too large");
+        }
+        this.backing = backing;
+        bits = new AtomicLongArray((int) words);
+        size = words * Long.SIZE;
+        hashes = Math.max(1, (int) Math.round((double) size / expected * ln2));
+    }
+
+    @Override
+    public boolean add(String url) {
+        long fingerprint = FingerprintSet.fingerprint(url);
+        long h1 = fingerprint >>> 32;
+        long h2 = fingerprint & 0xFFFFFFFFL | 1;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, size);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((bits.get(word) & mask) == 0 && (bits.getAndUpdate(word, value -> value | mask) & mask) == 0) {
+                added = true;
+            }
+        }
+        if (added) {
+            backing.add(url);
+            return true;
+        }
+        return backing.add(url);
+    }
+}
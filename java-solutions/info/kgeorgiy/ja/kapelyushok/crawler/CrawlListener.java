@@ -0,0 +1,28 @@
+package info.kgeorgiy.ja.kapelyushok.crawler;
+
+import java.io.IOException;
+
+/**
+ * Receives results of {@link WebCrawler#download(String, int, CrawlListener)} as soon as they are known.
+ * <p>
+ * Methods are called synchronously from downloader and extractor threads, possibly concurrently.
+ * Crawler threads are occupied while the listener runs, so a slow listener throttles the crawl.
+ */
+public interface CrawlListener {
+    /**
+     * Called once for every successfully downloaded page whose links were extracted if needed.
+     *
+     * @param url URL of the page.
+     */
+    void downloaded(String url);
+
+    /**
+     * Called for every page that could not be downloaded or whose links could not be extracted.
+     * If a shorter path to a page is found after it was reported as downloaded,
+     * it is downloaded and its links are extracted again, so the page can be reported as failed afterwards.
+     *
+     * @param url URL of the page.
+     * @param e   cause of failure.
+     */
+    void failed(String url, IOException e);
+}
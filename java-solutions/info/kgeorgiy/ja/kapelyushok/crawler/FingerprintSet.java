@@ -0,0 +1,77 @@
+package info.kgeorgiy.ja.kapelyushok.crawler;
+
+/**
+ * {@link VisitedSet} of 64-bit URL fingerprints.
+ * Fingerprints are spread over independently locked segments, each a linear-probing table of {@code long}s
+ * with {@code 0} marking empty slots.
+ */
+class FingerprintSet implements VisitedSet {
+    private static final int SEGMENTS = 64;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private static class Segment {
+        private long[] table;
+        private int size;
+
+        Segment(int capacity) {
+            table = new long[capacity];
+        }
+
+        synchronized boolean add(long fingerprint) {
+            if (!insert(table, fingerprint)) {
+                return false;
+            }
+            if (++size * 4L > table.length * 3L) {
+                long[] resized = new long[table.length * 2];
+                for (long value : table) {
+                    if (value != 0) {
+                        insert(resized, value);
+                    }
+                }
+                table = resized;
+            }
+            return true;
+        }
+
+        private static boolean insert(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                if (table[i] == fingerprint) {
+                    return false;
+                }
+                if (table[i] == 0) {
+                    table[i] = fingerprint;
+                    return true;
+                }
+            }
+        }
+    }
+
+    FingerprintSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected / SEGMENTS * 2 - 1)) * 2;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Returns non-zero 64-bit hash of the string: FNV-1a over chars, mixed by the SplitMix64 finalizer.
+     */
+    static long fingerprint(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash = (hash ^ url.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        hash ^= hash >>> 31;
+        return hash == 0 ? 1 : hash;
+    }
+
+    @Override
+    public boolean add(String url) {
+        long fingerprint = fingerprint(url);
+        // Segment is chosen by the high bits, slot by the low ones
+        return segments[(int) (fingerprint >>> 58)].add(fingerprint);
+    }
+}
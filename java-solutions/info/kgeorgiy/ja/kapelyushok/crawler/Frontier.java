@@ -0,0 +1,120 @@
+package info.kgeorgiy.ja.kapelyushok.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * URLs of a depth level of {@link WebCrawler#download(String, int)}: links of the next level,
+ * or URLs of the current level deferred by hosts with full queues.
+ * <p>
+ * Up to {@code limit} distinct URLs are kept in memory. When the limit is exceeded, they are written as one batch
+ * to a temporary file, so only a bounded number of URLs is on the heap. Duplicates within a batch are dropped,
+ * duplicates across batches are left to the visited set of the crawler.
+ * A batch is written outside the lock, so concurrent additions do not wait for the disk.
+ * Files are read back sequentially by {@link #forEach}, one URL at a time, and deleted on {@link #close()}.
+ * If a batch cannot be written, URLs are kept in memory.
+ * URLs are added concurrently, but read after all additions.
+ */
+class Frontier implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final int limit;
+    private final List<Path> files = new ArrayList<>();
+    private Set<String> memory = new LinkedHashSet<>();
+    private boolean closed;
+
+    Frontier(int limit) {
+        this.limit = limit;
+    }
+
+    void addAll(Collection<String> urls) {
+        Set<String> batch;
+        synchronized (this) {
+            memory.addAll(urls);
+            if (memory.size() <= limit) {
+                return;
+            }
+            batch = memory;
+            memory = new LinkedHashSet<>();
+        }
+        Path file = spill(batch);
+        synchronized (this) {
+            if (file == null) {
+                memory.addAll(batch);
+            } else if (closed) {
+                delete(file);
+            } else {
+                files.add(file);
+            }
+        }
+    }
+
+    /**
+     * Writes batch to a new temporary file.
+     * @return the file, or {@code null} if the batch cannot be written.
+     */
+    private static Path spill(Set<String> batch) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("frontier", ".urls");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                out.writeInt(batch.size());
+                for (String url : batch) {
+                    out.writeUTF(url);
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            delete(file);
+            return null;
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return files.isEmpty() && memory.isEmpty();
+    }
+
+    /**
+     * Passes all URLs to {@code action}: spilled batches in order of writing, then URLs kept in memory.
+     */
+    void forEach(Consumer<String> action) throws IOException {
+        for (Path file : files) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+                for (int i = in.readInt(); i > 0; i--) {
+                    action.accept(in.readUTF());
+                }
+            }
+        }
+        memory.forEach(action);
+    }
+
+    private static void delete(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        files.forEach(Frontier::delete);
+        files.clear();
+        memory = new LinkedHashSet<>();
+    }
+}
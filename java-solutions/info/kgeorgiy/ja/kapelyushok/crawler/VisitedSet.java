@@ -0,0 +1,54 @@
+package info.kgeorgiy.ja.kapelyushok.crawler;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of URLs already scheduled by {@link WebCrawler}.
+ * Implementations are thread-safe.
+ */
+public interface VisitedSet {
+    /**
+     * Adds URL to the set.
+     *
+     * @param url URL to add.
+     * @return whether URL was not in the set.
+     */
+    boolean add(String url);
+
+    /**
+     * Returns exact set keeping URL strings.
+     *
+     * @return new empty set.
+     */
+    static VisitedSet strings() {
+        Set<String> urls = ConcurrentHashMap.newKeySet();
+        return urls::add;
+    }
+
+    /**
+     * Returns set keeping 64-bit fingerprints of URLs in primitive open-addressing tables, about 16 bytes per URL.
+     * Distinct URLs are considered equal with probability about {@code n^2 / 2^65} for {@code n} URLs.
+     *
+     * @param expected expected number of URLs, used as initial capacity.
+     * @return new empty set.
+     */
+    static VisitedSet fingerprints(int expected) {
+        return new FingerprintSet(expected);
+    }
+
+    /**
+     * Returns Bloom filter of fixed size, about {@code 1.44 * log2(1 / errorRate)} bits per URL, in front of {@code backing}.
+     * New URLs are recorded in {@code backing} without checking it; URLs the filter considers visited,
+     * with probability up to {@code errorRate} for new ones while no more than {@code expected} URLs are added,
+     * are checked against {@code backing}. The result is exact whenever {@code backing} is.
+     *
+     * @param backing   set checked on positive answers of the filter.
+     * @param expected  expected number of URLs.
+     * @param errorRate false positive probability.
+     * @return new set.
+     */
+    static VisitedSet bloom(VisitedSet backing, long expected, double errorRate) {
+        return new BloomFilterSet(backing, expected, errorRate);
+    }
+}
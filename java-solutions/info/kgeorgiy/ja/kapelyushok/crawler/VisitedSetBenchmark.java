@@ -0,0 +1,57 @@
+package info.kgeorgiy.ja.kapelyushok.crawler;
+
+import java.util.function.Supplier;
+
+/**
+ * Measures memory footprint and throughput of {@link VisitedSet} implementations.
+ * Every set is filled with distinct URLs, then each URL is added again.
+ * <p>
+ * Usage: {@code VisitedSetBenchmark [<urls> [<errorRate>]]}.
+ */
+class VisitedSetBenchmark {
+    private static String url(int i) {
+        return "https://host" + i % 10_000 + ".example.com/path/to/page?id=" + i;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void measure(String name, int urls, Supplier<VisitedSet> factory) {
+        long before = usedMemory();
+        VisitedSet set = factory.get();
+        long start = System.nanoTime();
+        int added = 0;
+        for (int i = 0; i < urls; i++) {
+            if (set.add(url(i))) {
+                added++;
+            }
+        }
+        double addSeconds = (System.nanoTime() - start) / 1e9;
+        long memory = usedMemory() - before;
+        start = System.nanoTime();
+        int repeated = 0;
+        for (int i = 0; i < urls; i++) {
+            if (set.add(url(i))) {
+                repeated++;
+            }
+        }
+        double repeatSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-14s %8.1f bytes/url %8.2f M adds/s %8.2f M repeats/s, lost %d, repeated %d%n",
+                name, (double) memory / urls, urls / addSeconds / 1e6, urls / repeatSeconds / 1e6,
+                urls - added, repeated);
+    }
+
+    public static void main(String[] args) {
+        int urls = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        double errorRate = args.length > 1 ? Double.parseDouble(args[1]) : 1e-3;
+        measure("strings", urls, VisitedSet::strings);
+        measure("fingerprints", urls, () -> VisitedSet.fingerprints(urls));
+        measure("bloom+strings", urls, () -> VisitedSet.bloom(VisitedSet.strings(), urls, errorRate));
+        measure("bloom+fp", urls, () -> VisitedSet.bloom(VisitedSet.fingerprints(urls), urls, errorRate));
+    }
+}
@@ -6,24 +6,189 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class WebCrawler implements Crawler {
+    /**
+     * Default number of URLs of the next depth level kept in memory.
+     */
+    public static final int FRONTIER_LIMIT = 1 << 16;
     private final Downloader downloader;
     private final ExecutorService downloaderService;
     private final ExecutorService extractorService;
     private final int perHost;
-    private final Map<String, Semaphore> hostsSemaphores;
+    private final Map<String, Host> hosts;
+    private final Supplier<? extends VisitedSet> visitedSets;
+    private final int frontierLimit;
+    private final boolean adaptive;
+    private final Object progress = new Object();
+
+    /**
+     * Queue of downloads of a single host, at most {@link #perHost} of which are run at once,
+     * or as many as its {@link AdaptiveLimit} allows.
+     * Finished download submits the next queued ones, so the scheduling thread never blocks.
+     * {@link #offer} keeps at most {@link #frontierLimit} downloads queued; once a refused host drains
+     * to half of that, waiters on {@link #progress} are notified.
+     */
+    private class Host {
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+        private final AdaptiveLimit adaptiveLimit = adaptive ? new AdaptiveLimit(perHost) : null;
+        private int running;
+        private boolean refused;
+
+        private int limit() {
+            return adaptiveLimit == null ? perHost : adaptiveLimit.get();
+        }
+
+        synchronized void submit(Runnable task) {
+            if (running < limit()) {
+                running++;
+                start(task);
+            } else {
+                queue.add(task);
+            }
+        }
+
+        /**
+         * Same as {@link #submit}, but refuses the task if {@link #frontierLimit} downloads are already queued.
+         */
+        synchronized boolean offer(Runnable task) {
+            if (running >= limit() && queue.size() >= frontierLimit) {
+                refused = true;
+                return false;
+            }
+            submit(task);
+            return true;
+        }
+
+        synchronized boolean hasRoom() {
+            return queue.size() <= frontierLimit / 2;
+        }
+
+        private void start(Runnable task) {
+            downloaderService.submit(() -> {
+                try {
+                    task.run();
+                } finally {
+                    finished();
+                }
+            });
+        }
+
+        private void finished() {
+            boolean notify;
+            synchronized (this) {
+                running--;
+                while (running < limit() && !queue.isEmpty()) {
+                    running++;
+                    start(queue.poll());
+                }
+                notify = refused && queue.size() <= frontierLimit / 2;
+                if (notify) {
+                    refused = false;
+                }
+            }
+            if (notify) {
+                synchronized (progress) {
+                    progress.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Downloads page of this host, recording outcome in its {@link AdaptiveLimit}.
+         * Unchecked exceptions of the downloader count as failures, so a failed probe never stays in progress.
+         */
+        Document download(String url) throws IOException {
+            if (adaptiveLimit == null) {
+                return downloader.download(url);
+            }
+            adaptiveLimit.acquire();
+            long start = System.nanoTime();
+            try {
+                Document document = downloader.download(url);
+                adaptiveLimit.success(System.nanoTime() - start);
+                return document;
+            } catch (IOException | RuntimeException e) {
+                adaptiveLimit.failure(System.nanoTime() - start);
+                throw e;
+            }
+        }
+    }
 
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+        this(downloader, downloaders, extractors, perHost, VisitedSet::strings);
+    }
+
+    /**
+     * Same as {@link #WebCrawler(Downloader, int, int, int, Supplier, int)}
+     * with depth levels of at most {@link #FRONTIER_LIMIT} URLs kept in memory.
+     *
+     * @param downloader  page downloader.
+     * @param downloaders number of downloading threads.
+     * @param extractors  number of link extracting threads.
+     * @param perHost     maximum number of concurrent downloads from a single host.
+     * @param visitedSets factory of visited URL sets.
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                      Supplier<? extends VisitedSet> visitedSets) {
+        this(downloader, downloaders, extractors, perHost, visitedSets, FRONTIER_LIMIT);
+    }
+
+    /**
+     * Creates crawler tracking URLs visited by {@link #download(String, int)} in sets created by {@code visitedSets},
+     * a new one for every call. Compact sets, such as {@link VisitedSet#fingerprints(int)}, suit large crawls.
+     *
+     * @param downloader    page downloader.
+     * @param downloaders   number of downloading threads.
+     * @param extractors    number of link extracting threads.
+     * @param perHost       maximum number of concurrent downloads from a single host.
+     * @param visitedSets   factory of visited URL sets.
+     * @param frontierLimit positive number of URLs of the next depth level kept in memory,
+     *                      the rest is spilled to disk; also the number of URLs queued in memory for each host.
+     * @throws IllegalArgumentException if {@code frontierLimit} is not positive.
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                      Supplier<? extends VisitedSet> visitedSets, int frontierLimit) {
+        this(downloader, downloaders, extractors, perHost, visitedSets, frontierLimit, false);
+    }
+
+    private WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                       Supplier<? extends VisitedSet> visitedSets, int frontierLimit, boolean adaptive) {
+        if (frontierLimit <= 0) {
+            throw new IllegalArgumentException("Frontier limit should be positive: " + frontierLimit);
+        }
+        this.adaptive = adaptive;
+        this.visitedSets = visitedSets;
+        this.frontierLimit = frontierLimit;
         this.downloader = downloader;
         downloaderService = Executors.newFixedThreadPool(downloaders);
         extractorService = Executors.newFixedThreadPool(extractors);
         this.perHost = perHost;
-        hostsSemaphores = new ConcurrentHashMap<>();
+        hosts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates crawler adapting number of concurrent downloads from each host, see {@link AdaptiveLimit}.
+     * Hosts with fast and stable responses get up to {@code maxPerHost} concurrent downloads,
+     * slowing hosts get fewer, and pages of hosts that keep failing are reported as errors without downloading
+     * while their circuit is open.
+     *
+     * @param downloader  page downloader.
+     * @param downloaders number of downloading threads.
+     * @param extractors  number of link extracting threads.
+     * @param maxPerHost  maximum number of concurrent downloads from a single host.
+     * @return new crawler.
+     */
+    public static WebCrawler withAdaptivePerHost(Downloader downloader, int downloaders, int extractors, int maxPerHost) {
+        return new WebCrawler(downloader, downloaders, extractors, maxPerHost, VisitedSet::strings, FRONTIER_LIMIT, true);
     }
 
     /**
      * Downloads website up to specified depth.
+     * If a spilled depth level cannot be read back, the crawl stops after finishing scheduled pages,
+     * and the failure is reported as an error of {@code url}.
      *
      * @param url   start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
      * @param depth download depth.
@@ -31,57 +196,335 @@ public class WebCrawler implements Crawler {
      */
     @Override
     public Result download(String url, int depth) {
+        Queue<String> downloaded = new ConcurrentLinkedQueue<>();
+        Map<String, IOException> errors = new ConcurrentHashMap<>();
+        VisitedSet visited = visitedSets.get();
+        Frontier frontier = new Frontier(frontierLimit);
+        Frontier next = null;
+        try {
+            frontier.addAll(List.of(url));
+            for (int level = depth; level >= 1; level--) {
+                next = level > 1 ? new Frontier(frontierLimit) : null;
+                Pending pending = new Pending();
+                try {
+                    downloadLevel(frontier, visited, downloaded, errors, next, pending);
+                } finally {
+                    pending.await();
+                }
+                frontier.close();
+                frontier = next;
+                next = null;
+            }
+        } catch (IOException e) {
+            errors.put(url, new IOException("Failed to read crawl frontier", e));
+        } finally {
+            if (frontier != null) {
+                frontier.close();
+            }
+            if (next != null) {
+                next.close();
+            }
+        }
+        downloaded.removeIf(errors::containsKey);
+        return new Result(new ArrayList<>(downloaded), errors);
+    }
+
+    /**
+     * Schedules downloads of not yet visited URLs of {@code frontier}.
+     * URLs of hosts with full queues are deferred to a spillable frontier, which is passed again
+     * once any of these hosts has drained, so a slow host never delays scheduling of the others.
+     */
+    private void downloadLevel(Frontier frontier, VisitedSet visited, Queue<String> downloaded,
+                               Map<String, IOException> errors, Frontier next, Pending pending) throws IOException {
+        Set<Host> refused = new HashSet<>();
+        Frontier pass = frontier;
+        try {
+            while (true) {
+                Frontier current = pass;
+                Frontier deferred = pass = new Frontier(frontierLimit);
+                try {
+                    current.forEach(link -> {
+                        if ((current != frontier || visited.add(link))
+                                && !download(link, downloaded, errors, next, pending, refused)) {
+                            deferred.addAll(List.of(link));
+                        }
+                    });
+                } finally {
+                    if (current != frontier) {
+                        current.close();
+                    }
+                }
+                if (deferred.isEmpty()) {
+                    return;
+                }
+                awaitRoom(refused);
+                refused.clear();
+            }
+        } finally {
+            pass.close();
+        }
+    }
+
+    /**
+     * Waits, not interrupting on interruption, until any of {@code refused} hosts can queue downloads again.
+     */
+    private void awaitRoom(Set<Host> refused) {
+        boolean interrupted = false;
+        synchronized (progress) {
+            while (refused.stream().noneMatch(Host::hasRoom)) {
+                try {
+                    progress.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Schedules download of {@code url} and extraction of its links into {@code next},
+     * or only extraction without keeping links, if {@code next} is {@code null}.
+     *
+     * @return {@code false} if the host of {@code url} refused it and it was added to {@code refused}.
+     */
+    private boolean download(String url, Queue<String> downloaded, Map<String, IOException> errors,
+                             Frontier next, Pending pending, Set<Host> refused) {
+        try {
+            Host host = hosts.computeIfAbsent(URLUtils.getHost(url), name -> new Host());
+            Runnable doDownload = () -> {
+                try {
+                    Document document = host.download(url);
+                    downloaded.add(url);
+                    Runnable doExtract = () -> {
+                        try {
+                            List<String> links = document.extractLinks();
+                            if (next != null) {
+                                next.addAll(links);
+                            }
+                        } catch (IOException e) {
+                            errors.put(url, e);
+                        } finally {
+                            pending.arrive();
+                        }
+                    };
+                    pending.register();
+                    extractorService.submit(doExtract);
+                } catch (IOException e) {
+                    errors.put(url, e);
+                } finally {
+                    pending.arrive();
+                }
+            };
+            pending.register();
+            if (!host.offer(doDownload)) {
+                pending.arrive();
+                refused.add(host);
+                return false;
+            }
+        } catch (MalformedURLException e) {
+            errors.put(url, e);
+        }
+        return true;
+    }
+
+    /**
+     * Counter of unfinished tasks, unlike {@link Phaser} not limited in number of parties.
+     */
+    private static class Pending {
+        private final AtomicInteger count = new AtomicInteger(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        void register() {
+            count.incrementAndGet();
+        }
+
+        void arrive() {
+            if (count.decrementAndGet() == 0) {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Waits for all registered tasks, not interrupting on interruption.
+         */
+        void await() {
+            arrive();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Downloads website up to specified depth without waiting for whole depth levels.
+     * Every URL carries its remaining depth, and its links are scheduled as soon as they are extracted.
+     * If a URL is later reached by a shorter path, it is downloaded again, as documents are not kept,
+     * and its links are extracted with larger remaining depth, so the same pages are downloaded as by {@link #download(String, int)}.
+     * Unlike it, links of pages at the last level are not extracted, so their extraction errors are not reported
+     * and such pages are listed as downloaded.
+     *
+     * @param url   start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth download depth.
+     * @return download result.
+     */
+    public Result downloadPipelined(String url, int depth) {
         Set<String> downloaded = ConcurrentHashMap.newKeySet();
         Map<String, IOException> errors = new ConcurrentHashMap<>();
-        Set<String> queue = ConcurrentHashMap.newKeySet();
-        queue.add(url);
-        download(queue, depth, downloaded, errors, new Phaser(1));
+        download(url, depth, new CrawlListener() {
+            @Override
+            public void downloaded(String url) {
+                downloaded.add(url);
+            }
+
+            @Override
+            public void failed(String url, IOException e) {
+                errors.put(url, e);
+            }
+        });
         downloaded.removeAll(errors.keySet());
         return new Result(new ArrayList<>(downloaded), errors);
     }
 
-    private void download(Set<String> urls, int depth, Set<String> downloaded, Map<String, IOException> errors, Phaser phaser) {
-        if (depth < 1) {
-            return;
+    /**
+     * Downloads website up to specified depth, passing results to {@code listener} as soon as they are known.
+     * Pages are crawled as by {@link #downloadPipelined}, but downloaded pages and errors are not collected.
+     *
+     * @param url      start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth    download depth.
+     * @param listener receiver of results.
+     */
+    public void download(String url, int depth, CrawlListener listener) {
+        PipelinedCrawl crawl = new PipelinedCrawl(depth, listener);
+        crawl.visit(url, depth);
+        crawl.pending.await();
+    }
+
+    /**
+     * State of a single pipelined crawl.
+     */
+    private class PipelinedCrawl {
+        private final Map<String, Page> pages = new ConcurrentHashMap<>();
+        private final Pending pending = new Pending();
+        private final int depth;
+        private final CrawlListener listener;
+
+        /**
+         * Page with the largest remaining depth it was reached with.
+         * Documents are not kept: a downloaded page reached again with larger remaining depth is downloaded again.
+         */
+        private static class Page {
+            private int remaining;
+            private boolean downloading;
+            private boolean downloaded;
+            private boolean failed;
+            private boolean reported;
+            private int extracted;
+        }
+
+        PipelinedCrawl(int depth, CrawlListener listener) {
+            this.depth = depth;
+            this.listener = listener;
         }
-        Set<String> newUrls = ConcurrentHashMap.newKeySet();
-        for (String url : urls) {
-            if (!downloaded.add(url)) {
-                continue;
+
+        void visit(String url, int remaining) {
+            if (remaining < 1) {
+                return;
             }
+            Page page = pages.computeIfAbsent(url, u -> new Page());
+            synchronized (page) {
+                if (remaining <= page.remaining) {
+                    return;
+                }
+                page.remaining = remaining;
+                // A running download extracts links with the new remaining depth when it finishes
+                if (!page.downloading && !page.failed
+                        && (!page.downloaded || remaining > Math.max(1, page.extracted))) {
+                    page.downloading = true;
+                    scheduleDownload(url, page);
+                }
+            }
+        }
+
+        private void scheduleDownload(String url, Page page) {
+            Host host;
             try {
-                String host = URLUtils.getHost(url);
-                hostsSemaphores.putIfAbsent(host, new Semaphore(perHost));
-                hostsSemaphores.get(host).acquireUninterruptibly();
-                Runnable doDownload = () -> {
-                    try {
-                        Document document = downloader.download(url);
-                        Runnable doExtract = () -> {
-                            try {
-                                newUrls.addAll(document.extractLinks());
-                            } catch (IOException e) {
-                                errors.put(url, e);
-                            } finally {
-                                phaser.arriveAndDeregister();
-                            }
-                        };
-                        phaser.register();
-                        extractorService.submit(doExtract);
-                    } catch (IOException e) {
-                        errors.put(url, e);
-                    } finally {
-                        phaser.arriveAndDeregister();
-                        hostsSemaphores.get(host).release();
-                    }
-                };
-                phaser.register();
-                downloaderService.submit(doDownload);
+                host = hosts.computeIfAbsent(URLUtils.getHost(url), name -> new Host());
             } catch (MalformedURLException e) {
-                errors.put(url, e);
+                listener.failed(url, e);
+                return;
             }
+            pending.register();
+            host.submit(() -> {
+                try {
+                    Document document = host.download(url);
+                    boolean report;
+                    synchronized (page) {
+                        page.downloading = false;
+                        page.downloaded = true;
+                        report = !scheduleExtraction(url, page, document) && !page.reported;
+                        page.reported |= report;
+                    }
+                    if (report) {
+                        listener.downloaded(url);
+                    }
+                } catch (IOException e) {
+                    synchronized (page) {
+                        page.downloading = false;
+                        page.failed = true;
+                    }
+                    listener.failed(url, e);
+                } finally {
+                    pending.arrive();
+                }
+            });
+        }
+
+        /**
+         * Extracts links of downloaded page, unless they were already extracted with the same remaining depth.
+         * Called with page lock held.
+         *
+         * @return whether extraction was scheduled.
+         */
+        private boolean scheduleExtraction(String url, Page page, Document document) {
+            int remaining = page.remaining;
+            if (remaining <= 1 || remaining <= page.extracted) {
+                return false;
+            }
+            page.extracted = remaining;
+            pending.register();
+            extractorService.submit(() -> {
+                try {
+                    for (String link : document.extractLinks()) {
+                        visit(link, remaining - 1);
+                    }
+                    boolean report;
+                    synchronized (page) {
+                        report = !page.reported;
+                        page.reported = true;
+                    }
+                    if (report) {
+                        listener.downloaded(url);
+                    }
+                } catch (IOException e) {
+                    listener.failed(url, e);
+                } finally {
+                    pending.arrive();
+                }
+            });
+            return true;
         }
-        phaser.arriveAndAwaitAdvance();
-        download(newUrls, depth - 1, downloaded, errors, phaser);
     }
 
     /**
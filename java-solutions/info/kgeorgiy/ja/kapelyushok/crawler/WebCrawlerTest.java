@@ -0,0 +1,157 @@
+package info.kgeorgiy.ja.kapelyushok.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(JUnit4.class)
+public class WebCrawlerTest {
+    private static final String START = "http://start.com/";
+    private static final int DOWNLOADERS = 32;
+    private static final int EXTRACTORS = 4;
+    private static final int PER_HOST = 2;
+    private static final int MAX_PER_HOST = 8;
+
+    /**
+     * Host with given number of pages and response latency.
+     * Latency of a degrading host is multiplied by number of its concurrent downloads.
+     */
+    private record SimulatedHost(String name, int pages, long latency, boolean degrading, boolean failing,
+                                 AtomicInteger running, AtomicInteger peak, AtomicInteger calls) {
+        SimulatedHost(String name, int pages, long latency, boolean degrading, boolean failing) {
+            this(name, pages, latency, degrading, failing, new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+        }
+
+        String page(int i) {
+            return "http://" + name + "/page" + i;
+        }
+    }
+
+    /**
+     * Start page links to all pages of all hosts, which have no links.
+     */
+    private static class SimulatedDownloader implements Downloader {
+        private final Map<String, SimulatedHost> hosts;
+
+        SimulatedDownloader(SimulatedHost... hosts) {
+            this.hosts = Stream.of(hosts).collect(Collectors.toMap(SimulatedHost::name, Function.identity()));
+        }
+
+        @Override
+        public Document download(String url) throws IOException {
+            if (url.equals(START)) {
+                List<String> links = new ArrayList<>();
+                hosts.values().forEach(host -> {
+                    for (int i = 0; i < host.pages(); i++) {
+                        links.add(host.page(i));
+                    }
+                });
+                return () -> links;
+            }
+            SimulatedHost host = hosts.get(URLUtils.getHost(url));
+            host.calls().incrementAndGet();
+            int running = host.running().incrementAndGet();
+            host.peak().accumulateAndGet(running, Math::max);
+            try {
+                Thread.sleep(host.degrading() ? host.latency() * running : host.latency());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                host.running().decrementAndGet();
+            }
+            if (host.failing()) {
+                throw new IOException("Simulated failure of " + url);
+            }
+            return List::of;
+        }
+    }
+
+    /**
+     * Crawls from the start page, adding downloaded pages to {@code downloaded}.
+     * @return elapsed time in nanoseconds.
+     */
+    private static long crawl(WebCrawler crawler, List<String> downloaded) {
+        long start = System.nanoTime();
+        try (crawler) {
+            downloaded.addAll(crawler.download(START, 2).getDownloaded());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static SimulatedHost[] mixedHosts() {
+        return new SimulatedHost[]{
+                new SimulatedHost("fast1.com", 100, 5, false, false),
+                new SimulatedHost("fast2.com", 100, 5, false, false),
+                new SimulatedHost("slow.com", 40, 30, false, false),
+                new SimulatedHost("degrading.com", 20, 5, true, false),
+                new SimulatedHost("failing.com", 40, 5, false, true)
+        };
+    }
+
+    @Test
+    public void test01_adaptiveIsFasterOnMixedHosts() {
+        SimulatedHost[] fixed = mixedHosts();
+        List<String> fixedPages = new ArrayList<>();
+        long fixedTime = crawl(
+                new WebCrawler(new SimulatedDownloader(fixed), DOWNLOADERS, EXTRACTORS, PER_HOST), fixedPages);
+        SimulatedHost[] adaptive = mixedHosts();
+        List<String> adaptivePages = new ArrayList<>();
+        long adaptiveTime = crawl(
+                WebCrawler.withAdaptivePerHost(new SimulatedDownloader(adaptive), DOWNLOADERS, EXTRACTORS, MAX_PER_HOST),
+                adaptivePages);
+
+        Assert.assertEquals(new HashSet<>(fixedPages), new HashSet<>(adaptivePages));
+        Assert.assertEquals(1 + 100 + 100 + 40 + 20, adaptivePages.size());
+        for (int i = 0; i < fixed.length; i++) {
+            Assert.assertTrue(fixed[i].name() + " peak " + fixed[i].peak(), fixed[i].peak().get() <= PER_HOST);
+            Assert.assertTrue(adaptive[i].name() + " peak " + adaptive[i].peak(), adaptive[i].peak().get() <= MAX_PER_HOST);
+        }
+        for (int i = 0; i < 2; i++) {
+            Assert.assertTrue(adaptive[i].name() + " peak " + adaptive[i].peak(), adaptive[i].peak().get() > PER_HOST);
+        }
+        Assert.assertEquals(40, fixed[4].calls().get());
+        Assert.assertTrue("Failing host was called " + adaptive[4].calls() + " times", adaptive[4].calls().get() < 40);
+        // The slow host alone takes 40 * 30 / PER_HOST = 600 ms with the fixed limit, so the margin is generous
+        Assert.assertTrue(String.format("adaptive %d ms, fixed %d ms", adaptiveTime / 1_000_000, fixedTime / 1_000_000),
+                adaptiveTime < fixedTime * 3 / 4);
+    }
+
+    @Test
+    public void test02_failingHostCircuitOpens() {
+        SimulatedHost failing = new SimulatedHost("failing.com", 50, 5, false, true);
+        try (WebCrawler crawler = WebCrawler.withAdaptivePerHost(
+                new SimulatedDownloader(failing), DOWNLOADERS, EXTRACTORS, MAX_PER_HOST)) {
+            Result result = crawler.download(START, 2);
+            Assert.assertEquals(List.of(START), result.getDownloaded());
+            Assert.assertEquals(50, result.getErrors().size());
+        }
+        Assert.assertTrue("Failing host was called " + failing.calls() + " times", failing.calls().get() < 25);
+    }
+
+    @Test
+    public void test03_degradingHostIsNotOverloaded() {
+        SimulatedHost degrading = new SimulatedHost("degrading.com", 100, 10, true, false);
+        try (WebCrawler crawler = WebCrawler.withAdaptivePerHost(
+                new SimulatedDownloader(degrading), DOWNLOADERS, EXTRACTORS, MAX_PER_HOST)) {
+            Result result = crawler.download(START, 2);
+            Assert.assertEquals(101, result.getDownloaded().size());
+        }
+        Assert.assertTrue("Peak concurrency " + degrading.peak(), degrading.peak().get() < MAX_PER_HOST);
+    }
+}
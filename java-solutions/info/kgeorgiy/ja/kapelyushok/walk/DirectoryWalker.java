@@ -0,0 +1,109 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Recursive directory walker.
+ * <p>
+ * Files are reported on the calling thread in deterministic depth-first order, entries sorted by name.
+ * Meanwhile, listings of subdirectories are prefetched on a {@link ForkJoinPool},
+ * so that slow directory reads and {@code stat} calls overlap with each other and with hashing.
+ * At most {@link #MAX_PREFETCHED} listings are prefetched at once, other directories are listed on demand.
+ * Symbolic links are not followed, unreadable directories are reported as files.
+ */
+class DirectoryWalker {
+    private static final int MAX_PREFETCHED = 256;
+    private static final Comparator<Path> BY_NAME = Comparator.comparing(path -> path.getFileName().toString());
+    private final ForkJoinPool pool;
+    private final Semaphore prefetched = new Semaphore(MAX_PREFETCHED);
+
+    interface Action {
+        void accept(String fileName) throws IOException, WalkException;
+    }
+
+    private record Entry(Path path, Listing listing) {
+    }
+
+    private final class Listing extends RecursiveTask<List<Entry>> {
+        private final Path directory;
+        private boolean forked;
+
+        Listing(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected List<Entry> compute() {
+            List<Path> children = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path child : stream) {
+                    children.add(child);
+                }
+            } catch (IOException | DirectoryIteratorException | SecurityException e) {
+                return null;
+            }
+            children.sort(BY_NAME);
+            List<Entry> entries = new ArrayList<>(children.size());
+            for (Path child : children) {
+                Listing listing = null;
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    listing = new Listing(child);
+                    listing.prefetch();
+                }
+                entries.add(new Entry(child, listing));
+            }
+            return entries;
+        }
+
+        private void prefetch() {
+            if (pool != null && prefetched.tryAcquire()) {
+                forked = true;
+                pool.execute(this);
+            }
+        }
+
+        private List<Entry> await() {
+            if (!forked) {
+                return invoke();
+            }
+            List<Entry> entries = join();
+            prefetched.release();
+            return entries;
+        }
+    }
+
+    /**
+     * Creates walker prefetching listings on the given pool or listing directories sequentially, if it is {@code null}.
+     */
+    DirectoryWalker(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    void walk(Path directory, Action action) throws IOException, WalkException {
+        Listing listing = new Listing(directory);
+        listing.prefetch();
+        visit(directory, listing, action);
+    }
+
+    private void visit(Path directory, Listing listing, Action action) throws IOException, WalkException {
+        List<Entry> entries = listing.await();
+        if (entries == null) {
+            action.accept(directory.toString());
+            return;
+        }
+        for (Entry entry : entries) {
+            if (entry.listing() == null) {
+                action.accept(entry.path().toString());
+            } else {
+                visit(entry.path(), entry.listing(), action);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Hashes files with its own {@link Hasher} and buffers.
+ * Instances are not thread-safe: every worker thread must use its own hasher.
+ * <p>
+ * Files smaller than {@link #MAP_THRESHOLD} are read into a reusable direct buffer,
+ * larger ones are memory-mapped region by region, so no bytes are copied to the heap.
+ * If a {@link TreeHasher} is given, files are hashed with it and hashes are prefixed with its name.
+ * If a {@link HashCache} is given, files unchanged since the previous run are not read at all.
+ * If {@link WalkMetrics} are given, every hashed file is recorded there.
+ */
+class FileHasher {
+    static final long MAP_THRESHOLD = 1 << 22;
+    private static final long MAP_REGION_SIZE = 1 << 26;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Hasher hasher;
+    private final TreeHasher tree;
+    private final HashCache cache;
+    private final WalkMetrics metrics;
+    private final byte[] hash;
+    private final char[] hex;
+    private final int prefixLength;
+
+    FileHasher(HashAlgorithm algorithm, TreeHasher tree, HashCache cache, WalkMetrics metrics) {
+        this.hasher = algorithm.newHasher();
+        this.tree = tree;
+        this.cache = cache;
+        this.metrics = metrics;
+        hash = new byte[hasher.length()];
+        String prefix = tree == null ? "" : tree.getName() + ":";
+        prefixLength = prefix.length();
+        hex = new char[prefixLength + 2 * hash.length];
+        prefix.getChars(0, prefixLength, hex, 0);
+    }
+
+    /**
+     * Returns hexadecimal hash of the file, or zeros if it cannot be read.
+     * The returned array is reused by the next call.
+     */
+    char[] hash(String fileName) {
+        long start = metrics == null ? 0 : System.nanoTime();
+        long bytes = 0;
+        try {
+            Path file = Paths.get(fileName);
+            if (cache == null) {
+                bytes = digest(file);
+            } else {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!cache.get(file, attributes, hash)) {
+                    bytes = digest(file);
+                    if (attributes.isRegularFile()) {
+                        cache.put(file, attributes, hash);
+                    }
+                }
+            }
+        } catch (final IllegalArgumentException | UnsupportedOperationException | IOException | SecurityException e) {
+            Arrays.fill(hex, prefixLength, hex.length, '0');
+            if (metrics != null) {
+                metrics.record(0, System.nanoTime() - start, true);
+            }
+            return hex;
+        }
+        for (int i = 0, j = prefixLength; i < hash.length; i++, j += 2) {
+            hex[j] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            hex[j + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        if (metrics != null) {
+            metrics.record(bytes, System.nanoTime() - start, false);
+        }
+        return hex;
+    }
+
+    /**
+     * Hashes the file to {@link #hash} and returns its size.
+     */
+    private long digest(Path file) throws IOException {
+        hasher.reset();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (tree != null) {
+                tree.digest(channel, hash);
+                return size;
+            }
+            if (size >= MAP_THRESHOLD) {
+                for (long position = 0; position < size; position += MAP_REGION_SIZE) {
+                    long regionSize = Math.min(MAP_REGION_SIZE, size - position);
+                    hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize));
+                }
+            } else {
+                buffer.clear();
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    hasher.update(buffer);
+                    buffer.clear();
+                }
+            }
+            hasher.digest(hash);
+            return size;
+        }
+    }
+}
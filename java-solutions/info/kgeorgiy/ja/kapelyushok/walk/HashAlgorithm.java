@@ -0,0 +1,109 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+/**
+ * Hash algorithms supported by {@link Walk}.
+ */
+enum HashAlgorithm {
+    SHA256("sha256", () -> new MessageDigestHasher("SHA-256")),
+    CRC32C("crc32c", Crc32cHasher::new),
+    XXHASH64("xxhash64", XxHash64Hasher::new);
+
+    private final String name;
+    private final Supplier<Hasher> factory;
+
+    HashAlgorithm(String name, Supplier<Hasher> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    Hasher newHasher() {
+        return factory.get();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    static HashAlgorithm forName(String name) throws WalkException {
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.name.equals(name)) {
+                return algorithm;
+            }
+        }
+        throw new WalkException("Unknown hash algorithm " + name + ", expected one of: "
+                + Arrays.stream(values()).map(HashAlgorithm::getName).collect(Collectors.joining(", ")));
+    }
+
+    private static class MessageDigestHasher implements Hasher {
+        private final MessageDigest digest;
+
+        MessageDigestHasher(String algorithm) {
+            try {
+                digest = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Failed to hash: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public int length() {
+            return digest.getDigestLength();
+        }
+
+        @Override
+        public void reset() {
+            digest.reset();
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            digest.update(data);
+        }
+
+        @Override
+        public void digest(byte[] hash) {
+            try {
+                digest.digest(hash, 0, length());
+            } catch (DigestException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private static class Crc32cHasher implements Hasher {
+        private final CRC32C crc = new CRC32C();
+
+        @Override
+        public int length() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void reset() {
+            crc.reset();
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            crc.update(data);
+        }
+
+        @Override
+        public void digest(byte[] hash) {
+            long value = crc.getValue();
+            for (int i = Integer.BYTES - 1; i >= 0; i--) {
+                hash[i] = (byte) value;
+                value >>>= 8;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent cache of file hashes.
+ * Entries are keyed by absolute path and are valid while size, modification time and file key are unchanged.
+ * <p>
+ * The file is a header (magic, version, hash name, entry count) followed by entries:
+ * path, size, modification time in nanoseconds, file key and raw hash bytes.
+ * Missing or unreadable cache files, as well as caches of another hash, are treated as empty.
+ * Only entries of files hashed or found in the cache during this run are saved,
+ * so entries of deleted or no longer walked files are dropped.
+ */
+class HashCache {
+    private static final int MAGIC = 0x57414C4B;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Path path;
+    private final String hashName;
+    private final Map<String, Entry> loaded;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private record Entry(long size, long modified, String fileKey, byte[] hash) {
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && modified == modifiedTime(attributes)
+                    && fileKey.equals(fileKeyOf(attributes));
+        }
+    }
+
+    private HashCache(Path path, String hashName, Map<String, Entry> loaded) {
+        this.path = path;
+        this.hashName = hashName;
+        this.loaded = loaded;
+    }
+
+    static HashCache load(Path path, String hashName) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(hashName)) {
+                return new HashCache(path, hashName, Map.of());
+            }
+            int count = in.readInt();
+            Map<String, Entry> entries = new HashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                String fileKey = in.readUTF();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                entries.put(key, new Entry(size, modified, fileKey, hash));
+            }
+            return new HashCache(path, hashName, entries);
+        } catch (IOException | SecurityException e) {
+            return new HashCache(path, hashName, Map.of());
+        }
+    }
+
+    /**
+     * Copies cached hash of the file to {@code hash}.
+     *
+     * @return {@code false}, if the file has changed since it was hashed.
+     */
+    boolean get(Path file, BasicFileAttributes attributes, byte[] hash) {
+        String key = key(file);
+        Entry entry = loaded.get(key);
+        if (entry == null || !entry.matches(attributes)) {
+            return false;
+        }
+        entries.put(key, entry);
+        System.arraycopy(entry.hash(), 0, hash, 0, entry.hash().length);
+        return true;
+    }
+
+    void put(Path file, BasicFileAttributes attributes, byte[] hash) {
+        entries.put(key(file), new Entry(attributes.size(), modifiedTime(attributes), fileKeyOf(attributes), hash.clone()));
+    }
+
+    void save() throws WalkException {
+        List<Map.Entry<String, Entry>> saved = new ArrayList<>(entries.entrySet());
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(hashName);
+                out.writeInt(saved.size());
+                for (Map.Entry<String, Entry> e : saved) {
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(entry.size());
+                    out.writeLong(entry.modified());
+                    out.writeUTF(entry.fileKey());
+                    out.writeByte(entry.hash().length);
+                    out.write(entry.hash());
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new WalkException("Failed to write cache: " + e.getMessage());
+        } catch (SecurityException e) {
+            throw new WalkException("Security exception: " + e.getMessage());
+        }
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private static long modifiedTime(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static String fileKeyOf(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return fileKey == null ? "" : fileKey.toString();
+    }
+}
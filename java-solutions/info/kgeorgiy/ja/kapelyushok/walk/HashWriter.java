@@ -0,0 +1,93 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes {@code <hash> <fileName>} lines in UTF-8.
+ * Lines are encoded straight into a large reusable buffer, which is written to a {@link FileChannel} when full.
+ * ASCII file names, as well as hashes, are copied byte by byte, bypassing the charset encoder.
+ */
+class HashWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private final FileChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    HashWriter(Path path) throws IOException {
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    void write(char[] hash, String fileName) throws IOException {
+        if (buffer.remaining() < hash.length + 1 + fileName.length() + LINE_SEPARATOR.length) {
+            flush();
+        }
+        int position = buffer.position();
+        for (char c : hash) {
+            bytes[position++] = (byte) c;
+        }
+        bytes[position++] = ' ';
+        buffer.position(position);
+        writeName(fileName);
+        if (buffer.remaining() < LINE_SEPARATOR.length) {
+            flush();
+        }
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    private void writeName(String fileName) throws IOException {
+        int length = fileName.length();
+        if (length <= buffer.remaining()) {
+            int position = buffer.position();
+            int i = 0;
+            char c;
+            while (i < length && (c = fileName.charAt(i)) < 0x80) {
+                bytes[position + i++] = (byte) c;
+            }
+            if (i == length) {
+                buffer.position(position + length);
+                return;
+            }
+        }
+        CharBuffer chars = CharBuffer.wrap(fileName);
+        encoder.reset();
+        CoderResult result;
+        while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+            flush();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
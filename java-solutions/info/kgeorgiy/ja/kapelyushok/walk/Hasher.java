@@ -0,0 +1,29 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming hash function.
+ * Instances keep the state of a single hash computation and are not thread-safe.
+ */
+interface Hasher {
+    /**
+     * Returns length of the hash in bytes.
+     */
+    int length();
+
+    /**
+     * Starts new hash computation.
+     */
+    void reset();
+
+    /**
+     * Hashes remaining bytes of {@code data}, consuming them.
+     */
+    void update(ByteBuffer data);
+
+    /**
+     * Writes hash of the data passed since last {@link #reset()} to the first {@link #length()} bytes of {@code hash}.
+     */
+    void digest(byte[] hash);
+}
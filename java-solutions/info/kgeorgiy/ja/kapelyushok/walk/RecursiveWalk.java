@@ -1,4 +1,10 @@
 package info.kgeorgiy.ja.kapelyushok.walk;
 
+/**
+ * {@link Walk} that expands directories listed in the input recursively.
+ */
 public class RecursiveWalk {
+    public static void main(String[] args) {
+        Walk.main(args, true);
+    }
 }
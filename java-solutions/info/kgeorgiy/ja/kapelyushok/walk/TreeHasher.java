@@ -0,0 +1,147 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Merkle tree hash of files split into fixed-size chunks.
+ * <p>
+ * Leaf is {@code H(0x00 || chunk)}, inner node is {@code H(0x01 || left || right)},
+ * odd node at the end of a level is promoted unchanged. Empty file consists of one empty chunk.
+ * Leaves are hashed in windows of {@value #WINDOW} chunks and folded into a stack of complete subtrees,
+ * so memory does not depend on file size.
+ * When called from a {@link java.util.concurrent.ForkJoinPool} worker, chunks of a window are hashed in parallel on that pool.
+ * Instances are thread-safe.
+ */
+class TreeHasher {
+    /** Minimal chunk size in bytes. */
+    static final long MIN_CHUNK_SIZE = 1 << 12;
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int SEQUENTIAL_CHUNKS = 4;
+    private static final int WINDOW = 1 << 10;
+    private final long chunkSize;
+    private final ThreadLocal<Hasher> hashers;
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private final String name;
+
+    TreeHasher(HashAlgorithm algorithm, long chunkSize) {
+        if (chunkSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size should be at least " + MIN_CHUNK_SIZE + ": " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.hashers = ThreadLocal.withInitial(algorithm::newHasher);
+        name = "tree-" + algorithm.getName() + "-" + chunkSize;
+    }
+
+    /**
+     * Returns name of the hash, including algorithm and chunk size.
+     */
+    String getName() {
+        return name;
+    }
+
+    private class LeafTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final byte[][] leaves;
+        private final long first;
+        private final int from;
+        private final int to;
+
+        LeafTask(FileChannel channel, byte[][] leaves, long first, int from, int to) {
+            this.channel = channel;
+            this.leaves = leaves;
+            this.first = first;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SEQUENTIAL_CHUNKS && ForkJoinTask.inForkJoinPool()) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new LeafTask(channel, leaves, first, from, middle),
+                        new LeafTask(channel, leaves, first, middle, to)
+                );
+                return;
+            }
+            try {
+                for (int i = from; i < to; i++) {
+                    leaves[i] = hashLeaf(channel, (first + i) * chunkSize);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private byte[] hashLeaf(FileChannel channel, long position) throws IOException {
+        Hasher hasher = hashers.get();
+        ByteBuffer buffer = buffers.get();
+        hasher.reset();
+        buffer.clear().put(LEAF).flip();
+        hasher.update(buffer);
+        long end = position + chunkSize;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            hasher.update(buffer);
+        }
+        byte[] hash = new byte[hasher.length()];
+        hasher.digest(hash);
+        return hash;
+    }
+
+    private void node(byte[] left, byte[] right, byte[] result) {
+        Hasher hasher = hashers.get();
+        ByteBuffer buffer = buffers.get();
+        hasher.reset();
+        buffer.clear().put(NODE).put(left).put(right).flip();
+        hasher.update(buffer);
+        hasher.digest(result);
+    }
+
+    /**
+     * Writes root hash of the file to {@code hash}.
+     * <p>
+     * The stack holds roots of complete subtrees of decreasing height: after {@code count} leaves,
+     * it has a subtree of {@code 2^k} leaves for every bit {@code k} set in {@code count}.
+     * Folding it from the top gives the same root as the level-wise reduction with promotion of odd nodes.
+     */
+    void digest(FileChannel channel, byte[] hash) throws IOException {
+        long chunks = Math.max(1, (channel.size() + chunkSize - 1) / chunkSize);
+        byte[][] stack = new byte[Long.SIZE][];
+        int top = 0;
+        byte[][] window = new byte[(int) Math.min(WINDOW, chunks)][];
+        for (long first = 0; first < chunks; first += window.length) {
+            int size = (int) Math.min(window.length, chunks - first);
+            try {
+                new LeafTask(channel, window, first, 0, size).invoke();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (int i = 0; i < size; i++) {
+                stack[top++] = window[i];
+                for (long count = first + i + 1; (count & 1) == 0; count >>>= 1) {
+                    top--;
+                    node(stack[top - 1], stack[top], stack[top - 1]);
+                }
+            }
+        }
+        for (; top > 1; top--) {
+            node(stack[top - 2], stack[top - 1], stack[top - 2]);
+        }
+        System.arraycopy(stack[0], 0, hash, 0, hash.length);
+    }
+}
@@ -2,26 +2,51 @@ package info.kgeorgiy.ja.kapelyushok.walk;
 
 import java.io.*;
 import java.nio.file.*;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 public class Walk {
+    private static final String USAGE = "Wrong arguments. Expected: "
+            + "[--threads <threads>] [--algorithm <algorithm>] [--tree-chunk <chunkSize>] [--cache <cacheFileName>] "
+            + "[--progress <seconds>] <inputFileName> <outputFileName>";
+    private static final int TASKS_PER_THREAD = 64;
+    /** Maximal parallelism of {@link ForkJoinPool}. */
+    private static final int MAX_THREADS = 0x7fff;
     private final Path inputPath;
     private final Path outputPath;
-    private static final String ZEROS = "0".repeat(64);
-    private static final int BUFFER_SIZE = 1 << 13;
-    private static final byte[] buffer= new byte[BUFFER_SIZE];
-    private static MessageDigest digest;
+    private final int threads;
+    private final boolean recursive;
+    private final HashAlgorithm algorithm;
+    private final TreeHasher tree;
+    private final HashCache cache;
+    private final WalkMetrics metrics;
+    private final long progressPeriod;
+    private final FileHasher hasher;
 
-    private Walk(String inputFileName, String outputFileName) throws WalkException {
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new WalkException("Failed to hash: " + e.getMessage());
-        }
+    private Walk(String inputFileName, String outputFileName, int threads, boolean recursive,
+                 HashAlgorithm algorithm, long treeChunkSize, String cacheFileName, long progressPeriod)
+            throws WalkException {
+        this.threads = threads;
+        this.recursive = recursive;
+        this.algorithm = algorithm;
         inputPath = getPath(inputFileName, "Invalid path input file: ");
         outputPath = getPath(outputFileName, "Invalid path output file: ");
+        tree = treeChunkSize == 0 ? null : new TreeHasher(algorithm, treeChunkSize);
+        String hashName = tree == null ? algorithm.getName() : tree.getName();
+        cache = cacheFileName == null ? null : HashCache.load(getPath(cacheFileName, "Invalid path cache file: "), hashName);
+        this.progressPeriod = progressPeriod;
+        metrics = progressPeriod == 0 ? null : new WalkMetrics();
+        hasher = new FileHasher(algorithm, tree, cache, metrics);
 
         if (Files.notExists(outputPath)) {
             Path outputParentPath = outputPath.getParent();
@@ -42,14 +67,52 @@ public class Walk {
             throw new WalkException(message + e.getMessage());
         }
     }
+    /**
+     * Walks files, reporting progress to {@link System#err} every {@link #progressPeriod} seconds
+     * and exposing {@link WalkMetrics} over JMX while running, if metrics are enabled.
+     */
     private void walk() throws WalkException {
+        if (metrics == null) {
+            walkFiles();
+            return;
+        }
+        metrics.register();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "walk-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println(metrics.progress()),
+                progressPeriod, progressPeriod, TimeUnit.SECONDS);
+        try {
+            walkFiles();
+        } finally {
+            reporter.shutdownNow();
+            metrics.unregister();
+            System.err.println(metrics.progress());
+        }
+    }
+
+    private void walkFiles() throws WalkException {
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
         try (BufferedReader reader = Files.newBufferedReader(inputPath)) {
-            try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
+            try (HashWriter writer = new HashWriter(outputPath)) {
+                OrderedHasher orderedHasher = pool == null ? null : new OrderedHasher(pool, writer);
+                DirectoryWalker.Action action = orderedHasher != null
+                        ? orderedHasher::submit
+                        : fileName -> writer.write(hasher.hash(fileName), fileName);
+                DirectoryWalker directoryWalker = recursive ? new DirectoryWalker(pool) : null;
                 String fileName;
                 while ((fileName = reader.readLine()) != null) {
-                    String hash = getHash(fileName);
-                    writer.write(hash + " " + fileName);
-                    writer.newLine();
+                    Path directory = directoryWalker == null ? null : getDirectory(fileName);
+                    if (directory == null) {
+                        action.accept(fileName);
+                    } else {
+                        directoryWalker.walk(directory, action);
+                    }
+                }
+                if (orderedHasher != null) {
+                    orderedHasher.finish();
                 }
             } catch (IllegalArgumentException e) {
                 throw new WalkException("Illegal argument: " + e.getMessage());
@@ -64,35 +127,133 @@ public class Walk {
             throw new WalkException("Failed to read: " + e.getMessage());
         } catch (SecurityException e) {
             throw new WalkException("Security exception: " + e.getMessage());
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        if (cache != null) {
+            cache.save();
         }
     }
-    private static String getHash(String fileName) {
-        StringBuilder hexString;
+
+    private static Path getDirectory(String fileName) {
         try {
-            digest.reset();
-            try (BufferedInputStream bis = new BufferedInputStream(Files.newInputStream(Paths.get(fileName)))) {
-                int count;
-                while ((count = bis.read(buffer)) > 0) {
-                    digest.update(buffer, 0, count);
-                }
+            Path path = Paths.get(fileName);
+            return Files.isDirectory(path) ? path : null;
+        } catch (InvalidPathException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hashes files on pool workers, each with its own {@link FileHasher}.
+     * At most {@link #TASKS_PER_THREAD} files per thread are in flight, results are written in submission order.
+     */
+    private class OrderedHasher {
+        private final ExecutorService executor;
+        private final HashWriter writer;
+        private final int maxPending;
+        private final Queue<String> fileNames = new ArrayDeque<>();
+        private final Queue<Future<char[]>> hashes = new ArrayDeque<>();
+        private final ThreadLocal<FileHasher> hashers = ThreadLocal.withInitial(() -> new FileHasher(algorithm, tree, cache, metrics));
+
+        OrderedHasher(ForkJoinPool pool, HashWriter writer) {
+            this.executor = pool;
+            this.writer = writer;
+            maxPending = pool.getParallelism() * TASKS_PER_THREAD;
+        }
+
+        void submit(String fileName) throws IOException, WalkException {
+            fileNames.add(fileName);
+            hashes.add(executor.submit(() -> hashers.get().hash(fileName).clone()));
+            if (hashes.size() == maxPending) {
+                writeNext();
+            }
+        }
+
+        void finish() throws IOException, WalkException {
+            while (!hashes.isEmpty()) {
+                writeNext();
             }
-            byte[] hash = digest.digest();
-            hexString = new StringBuilder();
-            for (byte aDigest : hash) {
-                hexString.append(Integer.toHexString(0x100 | 0xFF & aDigest).substring(1));
+        }
+
+        private void writeNext() throws IOException, WalkException {
+            writer.write(await(hashes.poll()), fileNames.poll());
+        }
+    }
+
+    private static char[] await(Future<char[]> hash) throws WalkException {
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WalkException("Interrupted while hashing: " + e.getMessage());
+        } catch (ExecutionException e) {
+            throw new WalkException("Failed to hash: " + e.getCause().getMessage());
+        }
+    }
+
+    private static long parsePositive(String value, String name) throws WalkException {
+        try {
+            long result = Long.parseLong(value);
+            if (result > 0) {
+                return result;
             }
-        } catch (final IllegalArgumentException | UnsupportedOperationException | IOException | SecurityException e) {
-            return ZEROS;
+        } catch (NumberFormatException ignored) {
         }
-        return hexString.toString();
+        throw new WalkException(name + " should be positive integer: " + value);
     }
+
+    private static void run(String[] args, boolean recursive) throws WalkException {
+        int threads = 1;
+        HashAlgorithm algorithm = HashAlgorithm.SHA256;
+        long treeChunkSize = 0;
+        String cacheFileName = null;
+        long progressPeriod = 0;
+        int i = 0;
+        for (; i < args.length - 2; i += 2) {
+            switch (args[i]) {
+                case "--threads" -> {
+                    long value = parsePositive(args[i + 1], "Number of threads");
+                    if (value > MAX_THREADS) {
+                        throw new WalkException("Number of threads should be at most " + MAX_THREADS + ": " + args[i + 1]);
+                    }
+                    threads = (int) value;
+                }
+                case "--tree-chunk" -> {
+                    treeChunkSize = parsePositive(args[i + 1], "Chunk size");
+                    if (treeChunkSize < TreeHasher.MIN_CHUNK_SIZE) {
+                        throw new WalkException("Chunk size should be at least " + TreeHasher.MIN_CHUNK_SIZE + ": " + args[i + 1]);
+                    }
+                }
+                case "--algorithm" -> algorithm = HashAlgorithm.forName(args[i + 1]);
+                case "--cache" -> cacheFileName = args[i + 1];
+                case "--progress" -> progressPeriod = parsePositive(args[i + 1], "Progress period");
+                default -> throw new WalkException(USAGE);
+            }
+        }
+        if (i != args.length - 2) {
+            throw new WalkException(USAGE);
+        }
+        new Walk(args[i], args[i + 1], threads, recursive, algorithm, treeChunkSize, cacheFileName, progressPeriod).walk();
+    }
+
     public static void main(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            System.err.println("Wrong arguments. Expected: <inputFileName> <outputFileName>");
+        main(args, false);
+    }
+
+    /**
+     * Runs walk with the given command line arguments.
+     * Directories in the input are expanded recursively, if {@code recursive} is set.
+     */
+    static void main(String[] args, boolean recursive) {
+        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull)) {
+            System.err.println(USAGE);
             return;
         }
         try {
-            new Walk(args[0], args[1]).walk();
+            run(args, recursive);
         } catch (WalkException e) {
             System.err.println(e.getMessage());
         }
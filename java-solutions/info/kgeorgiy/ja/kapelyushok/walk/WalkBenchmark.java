@@ -0,0 +1,119 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+/**
+ * Measures hashing throughput of {@link FileHasher} for every {@link HashAlgorithm}
+ * against the former {@link BufferedInputStream} SHA-256 read path,
+ * and output throughput of {@link HashWriter} against the former {@link BufferedWriter}.
+ * <p>
+ * Usage: {@code WalkBenchmark [hash [<fileSize> [<iterations>]] | write [<lines> [<iterations>]]]},
+ * sizes are in bytes. Both benchmarks are run with default parameters if no arguments are given.
+ */
+class WalkBenchmark {
+    private static final int WARMUP = 3;
+
+    private static String streamHash(MessageDigest digest, byte[] buffer, Path file) throws IOException {
+        digest.reset();
+        try (BufferedInputStream bis = new BufferedInputStream(Files.newInputStream(file))) {
+            int count;
+            while ((count = bis.read(buffer)) > 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return Integer.toHexString(digest.digest()[0]);
+    }
+
+    private static void createFile(Path file, long size) throws IOException {
+        byte[] chunk = new byte[1 << 20];
+        new Random(size).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+    }
+
+    private interface Run {
+        void run() throws IOException;
+    }
+
+    private static void measure(String name, long bytes, int iterations, Run run) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            run.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            run.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-10s %12d bytes: %.3f GB/s%n", name, bytes, bytes * iterations / seconds / 1e9);
+    }
+
+    private static void benchmarkWrite(int lines, int iterations) throws IOException {
+        char[] hash = "0123456789abcdef".repeat(4).toCharArray();
+        String hashString = new String(hash);
+        String fileName = "some/directory/with/a/typical/file-name.txt";
+        long bytes = (long) lines * (hash.length + fileName.length() + 2);
+        Path file = Files.createTempFile("walk-benchmark", ".txt");
+        try {
+            measure("writer", bytes, iterations, () -> {
+                try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                    for (int i = 0; i < lines; i++) {
+                        writer.write(hashString + " " + fileName);
+                        writer.newLine();
+                    }
+                }
+            });
+            measure("channel", bytes, iterations, () -> {
+                try (HashWriter writer = new HashWriter(file)) {
+                    for (int i = 0; i < lines; i++) {
+                        writer.write(hash, fileName);
+                    }
+                }
+            });
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void benchmarkHash(long[] sizes, int iterations) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[1 << 13];
+        for (long size : sizes) {
+            Path file = Files.createTempFile("walk-benchmark", ".bin");
+            try {
+                createFile(file, size);
+                String name = file.toString();
+                measure("stream", size, iterations, () -> streamHash(digest, buffer, file));
+                for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+                    FileHasher hasher = new FileHasher(algorithm, null, null, null);
+                    measure(algorithm.getName(), size, iterations, () -> hasher.hash(name));
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, NoSuchAlgorithmException {
+        String mode = args.length > 0 ? args[0] : "all";
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        if (!mode.equals("write")) {
+            benchmarkHash(args.length > 1
+                    ? new long[]{Long.parseLong(args[1])}
+                    : new long[]{1 << 12, 1 << 20, FileHasher.MAP_THRESHOLD, 1L << 30}, iterations);
+        }
+        if (!mode.equals("hash")) {
+            benchmarkWrite(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000, iterations);
+        }
+    }
+}
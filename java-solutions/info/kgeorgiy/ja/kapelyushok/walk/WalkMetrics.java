@@ -0,0 +1,121 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency counters of a {@link Walk} run.
+ * Recording is lock-free and can be called concurrently from all workers.
+ */
+class WalkMetrics implements WalkMetricsMBean {
+    private static final String OBJECT_NAME = "info.kgeorgiy.ja.kapelyushok.walk:type=WalkMetrics";
+    private final long start = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(Long.SIZE);
+    private ObjectName name;
+
+    void record(long bytes, long nanos, boolean error) {
+        files.increment();
+        this.bytes.add(bytes);
+        if (error) {
+            errors.increment();
+        }
+        latencies.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+    }
+
+    void register() throws WalkException {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new WalkException("Failed to register metrics: " + e.getMessage());
+        }
+    }
+
+    void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+        }
+    }
+
+    String progress() {
+        return String.format("%d files (%d errors), %.1f files/s, %.1f MB/s, latency p50 <= %.0f us, p99 <= %.0f us",
+                getFiles(), getErrors(), getFilesPerSecond(), getBytesPerSecond() / 1e6,
+                getLatencyP50Micros(), getLatencyP99Micros());
+    }
+
+    @Override
+    public long getFiles() {
+        return files.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    private double seconds() {
+        return Math.max(System.nanoTime() - start, 1) / 1e9;
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return getFiles() / seconds();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return getBytes() / seconds();
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[latencies.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencies.get(i);
+        }
+        return histogram;
+    }
+
+    private double percentileMicros(double fraction) {
+        long[] histogram = getLatencyHistogram();
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen > 0 && seen >= fraction * total) {
+                return Math.scalb(1.0, i + 1) / 1e3;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public double getLatencyP50Micros() {
+        return percentileMicros(0.5);
+    }
+
+    @Override
+    public double getLatencyP99Micros() {
+        return percentileMicros(0.99);
+    }
+}
@@ -0,0 +1,34 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+/**
+ * JMX view of {@link WalkMetrics}.
+ */
+public interface WalkMetricsMBean {
+    long getFiles();
+
+    long getBytes();
+
+    /**
+     * Returns number of files that could not be hashed.
+     */
+    long getErrors();
+
+    double getFilesPerSecond();
+
+    double getBytesPerSecond();
+
+    /**
+     * Returns per-file latency histogram: element {@code i} counts files hashed in {@code [2^i, 2^(i+1))} nanoseconds.
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * Returns upper bound of the median per-file latency in microseconds.
+     */
+    double getLatencyP50Micros();
+
+    /**
+     * Returns upper bound of the 99th percentile of per-file latency in microseconds.
+     */
+    double getLatencyP99Micros();
+}
@@ -0,0 +1,129 @@
+package info.kgeorgiy.ja.kapelyushok.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming <a href="https://github.com/Cyan4973/xxHash/blob/dev/doc/xxhash_spec.md">XXH64</a> with zero seed.
+ * Hash is written in big-endian order, as printed by {@code xxhsum}.
+ */
+class XxHash64Hasher implements Hasher {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    private final ByteBuffer stripe = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long total;
+
+    XxHash64Hasher() {
+        reset();
+    }
+
+    @Override
+    public int length() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public void reset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        total = 0;
+        stripe.clear();
+    }
+
+    @Override
+    public void update(ByteBuffer data) {
+        total += data.remaining();
+        if (stripe.position() > 0) {
+            while (stripe.hasRemaining() && data.hasRemaining()) {
+                stripe.put(data.get());
+            }
+            if (stripe.hasRemaining()) {
+                return;
+            }
+            stripe.flip();
+            consumeStripes(stripe);
+            stripe.clear();
+        }
+        ByteOrder order = data.order();
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        consumeStripes(data);
+        data.order(order);
+        stripe.put(data);
+    }
+
+    private void consumeStripes(ByteBuffer data) {
+        long a = v1;
+        long b = v2;
+        long c = v3;
+        long d = v4;
+        while (data.remaining() >= STRIPE) {
+            a = round(a, data.getLong());
+            b = round(b, data.getLong());
+            c = round(c, data.getLong());
+            d = round(d, data.getLong());
+        }
+        v1 = a;
+        v2 = b;
+        v3 = c;
+        v4 = d;
+    }
+
+    @Override
+    public void digest(byte[] hash) {
+        long h;
+        if (total >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = PRIME5;
+        }
+        h += total;
+
+        stripe.flip();
+        while (stripe.remaining() >= Long.BYTES) {
+            h ^= round(0, stripe.getLong());
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+        }
+        if (stripe.remaining() >= Integer.BYTES) {
+            h ^= (stripe.getInt() & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+        }
+        while (stripe.hasRemaining()) {
+            h ^= (stripe.get() & 0xFFL) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+        reset();
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            hash[i] = (byte) h;
+            h >>>= 8;
+        }
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        return (accumulator ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+}